@@ -17,28 +17,86 @@ package org.wiremock.extensions.state;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.tomakehurst.wiremock.store.Store;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.tomakehurst.wiremock.store.ObjectStore;
+import org.wiremock.extensions.state.internal.ContextExpiry;
+import org.wiremock.extensions.state.internal.ContextWeigher;
+import org.wiremock.extensions.state.internal.model.Expiration;
 
 import java.time.Duration;
+import java.util.NavigableSet;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
-public class CaffeineStore implements Store<String, Object> {
+public class CaffeineStore implements ObjectStore, PrefixSearchableStore {
 
     private static final int DEFAULT_EXPIRATION_SECONDS = 60 * 60;
+    private static final int MAX_REMOVED_KEYS_PER_WRITE = 16;
 
     private final Cache<String, Object> cache;
+    /**
+     * Sorted index of all keys. Only modified while holding the lock of the key in the cache (within its compute).
+     */
+    private final NavigableSet<String> keys = new ConcurrentSkipListSet<>();
+    /**
+     * Keys evicted or expired by the cache, to be removed from the index.
+     */
+    private final Queue<String> removedKeys = new ConcurrentLinkedQueue<>();
 
     public CaffeineStore() {
         this(0);
     }
 
     public CaffeineStore(int expirationSeconds) {
-        var builder = Caffeine.newBuilder();
-        if (expirationSeconds == 0) {
-            builder.expireAfterWrite(Duration.ofSeconds(DEFAULT_EXPIRATION_SECONDS));
-        } else {
-            builder.expireAfterWrite(Duration.ofSeconds(expirationSeconds));
+        this(expirationSeconds, 0);
+    }
+
+    /**
+     * Creates a store bounded by expiration and (optionally) size.
+     *
+     * @param expirationSeconds Time after the last write after which an entry expires ({@code 0} = default = 60 minutes).
+     *                          Contexts with their own expiration use that one instead.
+     * @param maximumWeight     Maximum estimated size of all entries in bytes ({@code 0} = unbounded). When exceeded, the
+     *                          least recently / frequently used contexts are evicted.
+     * @see ContextWeigher
+     */
+    public CaffeineStore(int expirationSeconds, long maximumWeight) {
+        this(expirationSeconds, maximumWeight, false);
+    }
+
+    /**
+     * Creates a store bounded by expiration and (optionally) size.
+     *
+     * @param expirationSeconds Time after the last write (or access) after which an entry expires ({@code 0} = default =
+     *                          60 minutes). Contexts with their own expiration use that one instead.
+     * @param maximumWeight     Maximum estimated size of all entries in bytes ({@code 0} = unbounded).
+     * @param expireAfterAccess If true, reads extend the lifetime of entries as well (idle timeout).
+     */
+    public CaffeineStore(int expirationSeconds, long maximumWeight, boolean expireAfterAccess) {
+        this(expirationSeconds, maximumWeight, expireAfterAccess, Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a store bounded by expiration and (optionally) size, using a custom time source (e.g. for tests).
+     *
+     * @param expirationSeconds Time after the last write (or access) after which an entry expires ({@code 0} = default =
+     *                          60 minutes). Contexts with their own expiration use that one instead.
+     * @param maximumWeight     Maximum estimated size of all entries in bytes ({@code 0} = unbounded).
+     * @param expireAfterAccess If true, reads extend the lifetime of entries as well (idle timeout).
+     * @param ticker            Time source for the expiration of entries.
+     */
+    public CaffeineStore(int expirationSeconds, long maximumWeight, boolean expireAfterAccess, Ticker ticker) {
+        Caffeine<String, Object> builder = Caffeine.newBuilder()
+            .ticker(ticker)
+            .evictionListener((key, value, cause) -> removedKeys.add(key));
+        var duration = Duration.ofSeconds(expirationSeconds == 0 ? DEFAULT_EXPIRATION_SECONDS : expirationSeconds);
+        builder.expireAfter(new ContextExpiry(expireAfterAccess ? Expiration.afterAccess(duration) : Expiration.afterWrite(duration)));
+        if (maximumWeight > 0) {
+            builder.maximumWeight(maximumWeight).weigher(new ContextWeigher());
         }
         cache = builder.build();
     }
@@ -48,23 +106,68 @@ public class CaffeineStore implements Store<String, Object> {
         return cache.asMap().keySet().stream();
     }
 
+    /**
+     * Finds keys by prefix using a sorted index instead of visiting all keys.
+     */
+    @Override
+    public Stream<String> getKeysWithPrefix(String prefix) {
+        purgeRemovedKeys(Integer.MAX_VALUE);
+        return keys.tailSet(prefix).stream().takeWhile(it -> it.startsWith(prefix));
+    }
+
     @Override
     public Optional<Object> get(String key) {
         return Optional.ofNullable(cache.getIfPresent(key));
     }
 
+    @Override
+    public <T> Optional<T> get(String key, Class<T> type) {
+        return get(key).map(type::cast);
+    }
+
+    /**
+     * Atomically computes the new value for a key. Returning {@code null} removes the entry.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T compute(String key, Function<T, T> valueFunction) {
+        purgeRemovedKeys(MAX_REMOVED_KEYS_PER_WRITE);
+        return (T) cache.asMap().compute(key, (k, current) -> indexed(k, valueFunction.apply((T) current)));
+    }
+
     @Override
     public void put(String key, Object content) {
-        cache.put(key, content);
+        purgeRemovedKeys(MAX_REMOVED_KEYS_PER_WRITE);
+        cache.asMap().compute(key, (k, current) -> indexed(k, content));
     }
 
     @Override
     public void remove(String key) {
-        cache.invalidate(key);
+        cache.asMap().compute(key, (k, current) -> indexed(k, null));
     }
 
     @Override
     public void clear() {
-        cache.invalidateAll();
+        cache.asMap().keySet().forEach(this::remove);
+        purgeRemovedKeys(Integer.MAX_VALUE);
+    }
+
+    private <T> T indexed(String key, T value) {
+        if (value == null) {
+            keys.remove(key);
+        } else {
+            keys.add(key);
+        }
+        return value;
+    }
+
+    /**
+     * Removes keys evicted by the cache from the index - unless they were written again meanwhile.
+     */
+    private void purgeRemovedKeys(int limit) {
+        String key;
+        for (int i = 0; i < limit && (key = removedKeys.poll()) != null; i++) {
+            cache.asMap().computeIfAbsent(key, k -> indexed(k, null));
+        }
     }
 }
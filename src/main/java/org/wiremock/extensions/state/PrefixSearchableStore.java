@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state;
+
+import java.util.stream.Stream;
+
+/**
+ * Store able to find keys by prefix without visiting all keys.
+ * <p>
+ * Optional for stores: if implemented, deleting contexts by a regex with a literal prefix only visits the contexts
+ * starting with that prefix.
+ */
+public interface PrefixSearchableStore {
+
+    /**
+     * @param prefix Prefix of the keys.
+     * @return all keys starting with the prefix. May contain keys which expired meanwhile.
+     */
+    Stream<String> getKeysWithPrefix(String prefix);
+}
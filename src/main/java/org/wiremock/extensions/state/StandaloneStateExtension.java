@@ -15,16 +15,69 @@
  */
 package org.wiremock.extensions.state;
 
+import com.github.tomakehurst.wiremock.core.ConfigurationException;
+
+import java.util.Optional;
+import java.util.function.Function;
+
 /**
  * Factory to register all extensions for handling state for standalone service.
  * <p>
- * Uses {@link org.wiremock.extensions.state.CaffeineStore} as store.
+ * Uses {@link org.wiremock.extensions.state.CaffeineStore} as store. The store can be configured with system properties
+ * or environment variables:
+ * <ul>
+ *     <li>{@code wiremock.state.expiration} / {@code WIREMOCK_STATE_EXPIRATION}: expiration in seconds</li>
+ *     <li>{@code wiremock.state.maximumWeight} / {@code WIREMOCK_STATE_MAXIMUM_WEIGHT}: maximum estimated size of all
+ *     contexts in bytes</li>
+ *     <li>{@code wiremock.state.expireAfterAccess} / {@code WIREMOCK_STATE_EXPIRE_AFTER_ACCESS}: {@code true} to let
+ *     reads extend the lifetime of contexts as well</li>
+ * </ul>
  *
  * @see CaffeineStore
  */
 public class StandaloneStateExtension extends StateExtension {
 
+    static final String EXPIRATION = "wiremock.state.expiration";
+    static final String MAXIMUM_WEIGHT = "wiremock.state.maximumWeight";
+    static final String EXPIRE_AFTER_ACCESS = "wiremock.state.expireAfterAccess";
+
     public StandaloneStateExtension() {
-        super(new CaffeineStore());
+        this(StandaloneStateExtension::getConfigurationValue);
+    }
+
+    StandaloneStateExtension(Function<String, String> configuration) {
+        super(createStore(configuration));
+    }
+
+    private static CaffeineStore createStore(Function<String, String> configuration) {
+        return new CaffeineStore(
+            getNumber(configuration, EXPIRATION, Integer::parseInt).orElse(0),
+            getNumber(configuration, MAXIMUM_WEIGHT, Long::parseLong).orElse(0L),
+            Optional.ofNullable(configuration.apply(EXPIRE_AFTER_ACCESS)).map(String::trim).map(Boolean::parseBoolean).orElse(false)
+        );
+    }
+
+    /**
+     * Reads a non-negative number. Blank values are treated as not configured.
+     *
+     * @throws ConfigurationException if the value is not a number or negative.
+     */
+    static <T extends Number> Optional<T> getNumber(Function<String, String> configuration, String name, Function<String, T> parser) {
+        var value = Optional.ofNullable(configuration.apply(name)).map(String::trim).filter(it -> !it.isEmpty());
+        Optional<T> result;
+        try {
+            result = value.map(parser);
+        } catch (NumberFormatException ex) {
+            throw new ConfigurationException(String.format("%s: invalid number '%s'", name, value.get()));
+        }
+        if (result.isPresent() && result.get().longValue() < 0) {
+            throw new ConfigurationException(String.format("%s: must not be negative, got '%s'", name, value.get()));
+        }
+        return result;
+    }
+
+    private static String getConfigurationValue(String name) {
+        return Optional.ofNullable(System.getProperty(name))
+            .orElseGet(() -> System.getenv(name.replace('.', '_').replaceAll("([a-z])([A-Z])", "$1_$2").toUpperCase()));
     }
 }
@@ -25,8 +25,11 @@ import org.wiremock.extensions.state.extensions.StateRequestMatcher;
 import org.wiremock.extensions.state.extensions.StateTemplateHelperProviderExtension;
 import org.wiremock.extensions.state.extensions.TransactionEventListener;
 import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.ServeEventScopeManager;
+import org.wiremock.extensions.state.internal.TemplateRenderer;
 import org.wiremock.extensions.state.internal.TransactionManager;
 
+import java.time.Clock;
 import java.util.List;
 
 /**
@@ -50,20 +53,32 @@ import java.util.List;
 public class StateExtension implements ExtensionFactory {
 
     private final Store<String, Object> store;
+    private final Clock clock;
 
     public StateExtension(Store<String, Object> store) {
+        this(store, Clock.systemUTC());
+    }
+
+    /**
+     * @param store Store for the contexts.
+     * @param clock Wall clock used for the expiration of list entries (e.g. a fixed clock for tests).
+     */
+    public StateExtension(Store<String, Object> store, Clock clock) {
         this.store = store;
+        this.clock = clock;
     }
 
     @Override
     public List<Extension> create(WireMockServices services) {
-        var transactionManager = new TransactionManager(store);
-        var contextManager = new ContextManager(store, transactionManager);
+        var transactionManager = new TransactionManager();
+        var contextManager = new ContextManager(store, transactionManager, clock);
+        var templateRenderer = new TemplateRenderer(services);
+        var serveEventScopeManager = new ServeEventScopeManager(services);
         var stateTemplateHelperProviderExtension = new StateTemplateHelperProviderExtension(contextManager);
-        var recordStateEventListener = new RecordStateEventListener(contextManager, services);
-        var deleteStateEventListener = new DeleteStateEventListener(contextManager, services);
-        var transactionEventListener = new TransactionEventListener(transactionManager);
-        var stateRequestMatcher = new StateRequestMatcher(contextManager, services);
+        var recordStateEventListener = new RecordStateEventListener(contextManager, templateRenderer, serveEventScopeManager);
+        var deleteStateEventListener = new DeleteStateEventListener(contextManager, templateRenderer, serveEventScopeManager);
+        var transactionEventListener = new TransactionEventListener(transactionManager, serveEventScopeManager);
+        var stateRequestMatcher = new StateRequestMatcher(contextManager, templateRenderer, services);
 
         return List.of(
             recordStateEventListener,
@@ -15,24 +15,27 @@
  */
 package org.wiremock.extensions.state.extensions;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.tomakehurst.wiremock.common.Json;
 import com.github.tomakehurst.wiremock.core.ConfigurationException;
 import com.github.tomakehurst.wiremock.extension.Parameters;
 import com.github.tomakehurst.wiremock.extension.ServeEventListener;
-import com.github.tomakehurst.wiremock.extension.WireMockServices;
 import com.github.tomakehurst.wiremock.extension.responsetemplating.RequestTemplateModel;
 import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
 import org.apache.commons.lang3.StringUtils;
 import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.ParametersCache;
+import org.wiremock.extensions.state.internal.ServeEventScopeManager;
 import org.wiremock.extensions.state.internal.StateExtensionMixin;
+import org.wiremock.extensions.state.internal.TemplateRenderer;
 import org.wiremock.extensions.state.internal.api.DeleteStateParameters;
-import org.wiremock.extensions.state.internal.model.ResponseTemplateModel;
+import org.wiremock.extensions.state.internal.model.ServeEventScope;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
@@ -48,13 +51,17 @@ import static org.wiremock.extensions.state.internal.ExtensionLogger.logger;
  */
 public class DeleteStateEventListener implements ServeEventListener, StateExtensionMixin {
 
-    private final WireMockServices wireMockServices;
     private final ContextManager contextManager;
+    private final TemplateRenderer templateRenderer;
+    private final ServeEventScopeManager serveEventScopeManager;
+    private final Cache<String, Pattern> patterns = Caffeine.newBuilder().maximumSize(1_000).build();
+    private final ParametersCache<DeleteStateParameters> configurations = new ParametersCache<>(it -> Json.mapToObject(it, DeleteStateParameters.class));
 
 
-    public DeleteStateEventListener(ContextManager contextManager, WireMockServices services) {
+    public DeleteStateEventListener(ContextManager contextManager, TemplateRenderer templateRenderer, ServeEventScopeManager serveEventScopeManager) {
         this.contextManager = contextManager;
-        this.wireMockServices = services;
+        this.templateRenderer = templateRenderer;
+        this.serveEventScopeManager = serveEventScopeManager;
     }
 
     @Override
@@ -68,25 +75,25 @@ public class DeleteStateEventListener implements ServeEventListener, StateExtens
     }
 
     public void beforeResponseSent(ServeEvent serveEvent, Parameters parameters) {
-        final Map<String, Object> model = new HashMap<>();
-        model.putAll(wireMockServices.getTemplateEngine().buildModelForRequest(serveEvent));
-        model.put("response", ResponseTemplateModel.from(serveEvent.getResponse()));
-        var configuration = Json.mapToObject(parameters, DeleteStateParameters.class);
-        new ListenerInstance(serveEvent.getId().toString(), model, configuration).run();
+        var scope = serveEventScopeManager.getScope(serveEvent);
+        var configuration = configurations.get(parameters);
+        new ListenerInstance(serveEvent.getId().toString(), scope, configuration).run();
     }
 
-    private String renderTemplate(Object context, String value) {
-        return wireMockServices.getTemplateEngine().getUncachedTemplate(value).apply(context);
+    private String renderTemplate(Supplier<Map<String, Object>> context, String value) {
+        return templateRenderer.render(context, value);
     }
 
     private class ListenerInstance {
         private final String requestId;
         private final DeleteStateParameters configuration;
-        private final Map<String, Object> model;
+        private final ServeEventScope scope;
+        private final Supplier<Map<String, Object>> model;
 
-        ListenerInstance(String requestId, Map<String, Object> model, DeleteStateParameters configuration) {
+        ListenerInstance(String requestId, ServeEventScope scope, DeleteStateParameters configuration) {
             this.requestId = requestId;
-            this.model = model;
+            this.scope = scope;
+            this.model = scope.getModel();
             this.configuration = configuration;
         }
 
@@ -110,24 +117,14 @@ public class DeleteStateEventListener implements ServeEventListener, StateExtens
         }
 
         private void deleteContexts(List<String> rawContexts) {
-
             var contexts = rawContexts.stream().map(it -> renderTemplate(model, it)).collect(Collectors.toList());
-            contextManager.onEach(requestId, context -> {
-                if (contexts.contains(context.getContextName())) {
-                    contextManager.deleteContext(requestId, context.getContextName());
-                }
-            });
+            contextManager.deleteContexts(requestId, contexts);
         }
 
         private void deleteContextsMatching(String rawRegex) {
             try {
-                var regex = renderTemplate(model, rawRegex);
-                var pattern = Pattern.compile(regex);
-                contextManager.onEach(requestId, context -> {
-                    if (pattern.matcher(context.getContextName()).matches()) {
-                        contextManager.deleteContext(requestId, context.getContextName());
-                    }
-                });
+                var pattern = patterns.get(renderTemplate(model, rawRegex), Pattern::compile);
+                contextManager.deleteContextsMatching(requestId, pattern);
             } catch (PatternSyntaxException ex) {
                 throw createConfigurationError("Missing/invalid configuration for context deletion: %s", ex.getMessage());
             }
@@ -155,16 +152,16 @@ public class DeleteStateEventListener implements ServeEventListener, StateExtens
         }
 
         private void deleteFirst(String contextName) {
-            contextManager.createOrUpdateContextList(requestId, contextName, maps -> {
-                if (!maps.isEmpty()) maps.removeFirst();
+            contextManager.createOrUpdateContextList(requestId, contextName, list -> {
                 logger().info(contextName, "list::deleteFirst");
+                return list.withoutFirst();
             });
         }
 
         private void deleteLast(String contextName) {
-            contextManager.createOrUpdateContextList(requestId, contextName, maps -> {
-                if (!maps.isEmpty()) maps.removeLast();
+            contextManager.createOrUpdateContextList(requestId, contextName, list -> {
                 logger().info(contextName, "list::deleteLast");
+                return list.withoutLast();
             });
         }
 
@@ -172,11 +169,12 @@ public class DeleteStateEventListener implements ServeEventListener, StateExtens
             try {
                 var index = Integer.parseInt(renderTemplate(model, listConfig.getDeleteIndex()));
                 contextManager.createOrUpdateContextList(requestId, contextName, list -> {
-                    list.remove(index);
-                    logger().info(contextName, String.format("list::deleteIndex(%d)", index));
+                    var result = list.withoutIndex(index);
+                    logger().info(contextName, "list::deleteIndex(%d)", index);
+                    return result;
                 });
             } catch (IndexOutOfBoundsException | NumberFormatException e) {
-                logger().info(contextName, String.format("Unknown or unparsable list index: '%s' - ignoring", listConfig.getDeleteIndex()));
+                logger().info(contextName, "Unknown or unparsable list index: '%s' - ignoring", listConfig.getDeleteIndex());
             }
         }
 
@@ -184,21 +182,18 @@ public class DeleteStateEventListener implements ServeEventListener, StateExtens
             var property = renderTemplate(model, listConfig.getDeleteWhere().getProperty());
             var value = renderTemplate(model, listConfig.getDeleteWhere().getValue());
             contextManager.createOrUpdateContextList(requestId, contextName, list -> {
-                var iterator = list.iterator();
-                while (iterator.hasNext()) {
-                    var element = iterator.next();
-                    if (Objects.equals(element.getOrDefault(property, null), value)) {
-                        iterator.remove();
-                        logger().info(contextName, String.format("list::deleteWhere(property=%s)", property));
-                        break;
-                    }
+                var index = list.indexOf(property, value);
+                if (index < 0) {
+                    return list;
                 }
+                logger().info(contextName, "list::deleteWhere(property=%s)", property);
+                return list.withoutIndex(index);
             });
         }
 
         private String createContextName(String rawContext) {
             var context = Optional.ofNullable(rawContext).filter(StringUtils::isNotBlank)
-                .map(it -> renderTemplate(model, it))
+                .map(it -> scope.getContextName(it, template -> renderTemplate(model, template)))
                 .orElseThrow(() -> new ConfigurationException("No context specified"));
             if (StringUtils.isBlank(context)) {
                 throw createConfigurationError("Context cannot be blank");
@@ -19,21 +19,27 @@ import com.github.tomakehurst.wiremock.common.Json;
 import com.github.tomakehurst.wiremock.core.ConfigurationException;
 import com.github.tomakehurst.wiremock.extension.Parameters;
 import com.github.tomakehurst.wiremock.extension.ServeEventListener;
-import com.github.tomakehurst.wiremock.extension.WireMockServices;
 import com.github.tomakehurst.wiremock.extension.responsetemplating.RequestTemplateModel;
 import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
 import org.apache.commons.lang3.StringUtils;
 import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.ParametersCache;
+import org.wiremock.extensions.state.internal.ServeEventScopeManager;
 import org.wiremock.extensions.state.internal.StateExtensionMixin;
+import org.wiremock.extensions.state.internal.TemplateRenderer;
 import org.wiremock.extensions.state.internal.api.RecordStateParameters;
-import org.wiremock.extensions.state.internal.model.ResponseTemplateModel;
+import org.wiremock.extensions.state.internal.model.ContextUpdate;
+import org.wiremock.extensions.state.internal.model.Expiration;
+import org.wiremock.extensions.state.internal.model.ServeEventScope;
 
-import java.util.HashMap;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
-import static org.wiremock.extensions.state.internal.ExtensionLogger.logger;
 
 /**
  * Event listener to trigger state context recording.
@@ -44,20 +50,21 @@ import static org.wiremock.extensions.state.internal.ExtensionLogger.logger;
  */
 public class RecordStateEventListener implements ServeEventListener, StateExtensionMixin {
 
-    private final WireMockServices wireMockServices;
     private final ContextManager contextManager;
+    private final TemplateRenderer templateRenderer;
+    private final ServeEventScopeManager serveEventScopeManager;
+    private final ParametersCache<RecordStateParameters> configurations = new ParametersCache<>(it -> Json.mapToObject(it, RecordStateParameters.class));
 
-    public RecordStateEventListener(ContextManager contextManager, WireMockServices services) {
+    public RecordStateEventListener(ContextManager contextManager, TemplateRenderer templateRenderer, ServeEventScopeManager serveEventScopeManager) {
         this.contextManager = contextManager;
-        this.wireMockServices = services;
+        this.templateRenderer = templateRenderer;
+        this.serveEventScopeManager = serveEventScopeManager;
     }
 
     public void beforeResponseSent(ServeEvent serveEvent, Parameters parameters) {
-        final Map<String, Object> model = new HashMap<>();
-        model.putAll(wireMockServices.getTemplateEngine().buildModelForRequest(serveEvent));
-        model.put("response", ResponseTemplateModel.from(serveEvent.getResponse()));
-        var configuration = Json.mapToObject(parameters, RecordStateParameters.class);
-        new ListenerInstance(serveEvent.getId().toString(), model, configuration).run();
+        var scope = serveEventScopeManager.getScope(serveEvent);
+        var configuration = configurations.get(parameters);
+        new ListenerInstance(serveEvent.getId().toString(), scope, configuration).run();
     }
 
     @Override
@@ -71,46 +78,79 @@ public class RecordStateEventListener implements ServeEventListener, StateExtens
     }
 
 
-    private String renderTemplate(Object context, String value) {
-        return wireMockServices.getTemplateEngine().getUncachedTemplate(value).apply(context);
+    private String renderTemplate(Supplier<Map<String, Object>> context, String value) {
+        return templateRenderer.render(context, value);
     }
 
     private class ListenerInstance {
         private final String requestId;
         private final RecordStateParameters parameters;
-        private final Map<String, Object> model;
+        private final ServeEventScope scope;
+        private final Supplier<Map<String, Object>> model;
         private final String contextName;
 
-        ListenerInstance(String requestId, Map<String, Object> model, RecordStateParameters parameters) {
+        ListenerInstance(String requestId, ServeEventScope scope, RecordStateParameters parameters) {
             this.requestId = requestId;
-            this.model = model;
+            this.scope = scope;
+            this.model = scope.getModel();
             this.parameters = parameters;
             this.contextName = createContextName();
         }
 
         void run() {
-            handleState();
-            handleList();
+            var update = ContextUpdate.create().withExpiration(getExpiration());
+            if (parameters.getState() != null) {
+                update = update.withProperties(getPropertiesFromConfiguration(parameters.getState()));
+            }
+            update = withListUpdate(update);
+            if (!update.isEmpty()) {
+                contextManager.createOrUpdateContext(requestId, contextName, update);
+            }
+        }
+
+        /**
+         * Parses {@code expireAfter} / {@code expireAfterAccess}: either seconds or an ISO-8601 duration (e.g. {@code PT5M}).
+         */
+        private Expiration getExpiration() {
+            var afterWrite = parseDuration("expireAfter", parameters.getExpireAfter());
+            var afterAccess = parseDuration("expireAfterAccess", parameters.getExpireAfterAccess());
+            if (afterWrite != null && afterAccess != null) {
+                throw createConfigurationError("only one of 'expireAfter' and 'expireAfterAccess' can be set");
+            }
+            return afterWrite != null ? Expiration.afterWrite(afterWrite)
+                : afterAccess != null ? Expiration.afterAccess(afterAccess)
+                : null;
+        }
+
+        private Duration parseDuration(String name, String template) {
+            return Optional.ofNullable(template)
+                .map(it -> renderTemplate(model, it).trim())
+                .filter(StringUtils::isNotBlank)
+                .map(value -> {
+                    try {
+                        var duration = StringUtils.isNumeric(value) ? Duration.ofSeconds(Long.parseLong(value)) : Duration.parse(value);
+                        if (duration.isNegative() || duration.isZero()) {
+                            throw createConfigurationError("%s has to be positive: %s", name, value);
+                        }
+                        return duration;
+                    } catch (ArithmeticException | DateTimeParseException | NumberFormatException ex) {
+                        throw createConfigurationError("%s is not a valid duration: %s", name, value);
+                    }
+                })
+                .orElse(null);
         }
 
         private String createContextName() {
             var rawContext = Optional.ofNullable(parameters.getContext())
                 .filter(StringUtils::isNotBlank)
                 .orElseThrow(() -> new ConfigurationException("no context specified"));
-            String context = renderTemplate(model, rawContext);
+            String context = scope.getContextName(rawContext, it -> renderTemplate(model, it));
             if (StringUtils.isBlank(context)) {
                 throw createConfigurationError("context cannot be blank");
             }
             return context;
         }
 
-        private void handleState() {
-            Optional.ofNullable(parameters.getState())
-                .ifPresent(configuration ->
-                    contextManager.createOrUpdateContextState(requestId, contextName, getPropertiesFromConfiguration(configuration))
-                );
-        }
-
         private Map<String, String> getPropertiesFromConfiguration(Map<String, String> configuration) {
             return configuration.entrySet()
                 .stream()
@@ -118,29 +158,25 @@ public class RecordStateEventListener implements ServeEventListener, StateExtens
                 .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, Map.Entry::getValue));
         }
 
-        private void handleList() {
-            Optional.ofNullable(parameters.getList())
-                .ifPresent(listConfiguration -> {
-                        Optional.ofNullable(listConfiguration.getAddFirst())
-                            .ifPresent(this::addFirst);
-                        Optional.ofNullable(listConfiguration.getAddLast())
-                            .ifPresent(this::addLast);
-                    }
-                );
-        }
-
-        private void addFirst(Map<String, String> configuration) {
-            contextManager.createOrUpdateContextList(requestId, contextName, list -> {
-                list.addFirst(getPropertiesFromConfiguration(configuration));
-                logger().info(contextName, "list::addFirst");
-            });
-        }
-
-        private void addLast(Map<String, String> configuration) {
-            contextManager.createOrUpdateContextList(requestId, contextName, list -> {
-                list.addLast(getPropertiesFromConfiguration(configuration));
-                logger().info(contextName, "list::addLast");
-            });
+        /**
+         * Renders all list entries upfront, so no templates are rendered while updating the context.
+         */
+        private ContextUpdate withListUpdate(ContextUpdate update) {
+            var listConfiguration = parameters.getList();
+            if (listConfiguration == null) {
+                return update;
+            }
+            var result = update;
+            if (listConfiguration.getAddFirst() != null) {
+                result = result.withAddFirst(getPropertiesFromConfiguration(listConfiguration.getAddFirst()));
+            }
+            if (listConfiguration.getAddLast() != null) {
+                result = result.withAddLast(getPropertiesFromConfiguration(listConfiguration.getAddLast()));
+            }
+            if (listConfiguration.getIndexBy() != null && !listConfiguration.getIndexBy().isEmpty()) {
+                result = result.withIndexedListProperties(Set.copyOf(listConfiguration.getIndexBy()));
+            }
+            return result.withListEntryExpiration(parseDuration("list.expireAfter", listConfiguration.getExpireAfter()));
         }
     }
 }
@@ -18,6 +18,7 @@ package org.wiremock.extensions.state.extensions;
 import com.github.jknack.handlebars.Options;
 import com.github.tomakehurst.wiremock.common.Json;
 import com.github.tomakehurst.wiremock.common.JsonException;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.RequestTemplateModel;
 import com.github.tomakehurst.wiremock.extension.responsetemplating.helpers.HandlebarsHelper;
 import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.PathNotFoundException;
@@ -30,6 +31,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
 import static org.wiremock.extensions.state.internal.ExtensionLogger.logger;
@@ -43,6 +45,13 @@ import static org.wiremock.extensions.state.internal.ExtensionLogger.logger;
  */
 public class StateHandlerbarHelper extends HandlebarsHelper<Object> {
 
+    /**
+     * Filter on a single property ({@code $[?(@.id == '42')]}, optionally followed by a path applied to each match).
+     */
+    private static final Pattern PROPERTY_FILTER = Pattern.compile(
+        "^\\$\\.?\\[\\?\\(@\\.(\\w+)\\s*==\\s*(?:'([^']*)'|\"([^\"]*)\")\\s*\\)](.*)$"
+    );
+
     private final ContextManager contextManager;
 
     public StateHandlerbarHelper(ContextManager contextManager) {
@@ -61,14 +70,15 @@ public class StateHandlerbarHelper extends HandlebarsHelper<Object> {
         if (StringUtils.isNotBlank(property) == StringUtils.isNotBlank(list)) {
             return handleError("Either 'property' or 'list' has to be set");
         }
+        String requestId = getRequestId(options);
         if (StringUtils.isNotBlank(property)) {
-            return getProperty(contextName, property, defaultValue)
+            return getProperty(requestId, contextName, property, defaultValue)
                 .orElseGet(() -> {
-                    logger().info(contextName, String.format("property '%s' not found, using `null`", property));
+                    logger().info(contextName, "property '%s' not found, using `null`", property);
                     return "";
                 });
         } else {
-            return getList(contextName, list)
+            return getList(requestId, contextName, list)
                 .orElseGet(() ->
                     Optional.ofNullable(defaultValue)
                         .orElseGet(() -> {
@@ -80,9 +90,15 @@ public class StateHandlerbarHelper extends HandlebarsHelper<Object> {
         }
     }
 
-    private Optional<Object> getProperty(String contextName, String property, String defaultValue) {
-        return contextManager.getContextCopy(contextName)
-            .map(context ->
+    private String getRequestId(Options options) {
+        return Optional.ofNullable(options.context.get("request"))
+            .filter(RequestTemplateModel.class::isInstance)
+            .map(it -> ((RequestTemplateModel) it).getId())
+            .orElse(null);
+    }
+
+    private Optional<Object> getProperty(String requestId, String contextName, String property, String defaultValue) {
+        return contextManager.withContextRead(requestId, contextName, context ->
                 Stream.of(SpecialProperties.values())
                     .filter(it -> it.name().equals(property))
                     .findFirst()
@@ -91,7 +107,7 @@ public class StateHandlerbarHelper extends HandlebarsHelper<Object> {
             )
             .or(() -> convertToPropertySpecificDefault(contextName, property, defaultValue))
             .map((obj) -> {
-                logger().info(contextName, String.format("handlebar(property=%s)", property));
+                logger().info(contextName, "handlebar(property=%s)", property);
                 return obj;
             });
     }
@@ -107,14 +123,13 @@ public class StateHandlerbarHelper extends HandlebarsHelper<Object> {
             .or(() -> Optional.ofNullable(defaultValue));
     }
 
-    private Optional<Object> getList(String contextName, String list) {
-        return contextManager.getContextCopy(contextName)
-            .flatMap(context -> {
+    private Optional<Object> getList(String requestId, String contextName, String list) {
+        return contextManager.withContextRead(requestId, contextName, context -> {
                 try {
-                    return Optional.of(JsonPath.read(context.getList(), list));
+                    return readList(context, list);
                 } catch (PathNotFoundException e) {
-                    logger().info(contextName, "Path query failed: " + e.getMessage());
-                    return Optional.empty();
+                    logger().info(contextName, "Path query failed: %s", e.getMessage());
+                    return null;
                 }
             })
             .map((obj) -> {
@@ -123,6 +138,19 @@ public class StateHandlerbarHelper extends HandlebarsHelper<Object> {
             });
     }
 
+    /**
+     * Filters on an indexed property only visit the matching entries. The rest of the path is applied to the matches
+     * with a wildcard, which selects the same entries in the same order as the filter does.
+     */
+    private static Object readList(Context context, String path) {
+        var filter = PROPERTY_FILTER.matcher(path);
+        if (filter.matches() && context.getList().isIndexed(filter.group(1))) {
+            var value = filter.group(2) != null ? filter.group(2) : filter.group(3);
+            return JsonPath.<Object>read(context.getList().getAllWhere(filter.group(1), value), "$[*]" + filter.group(4));
+        }
+        return JsonPath.<Object>read(context.getList(), path);
+    }
+
     private enum SpecialProperties {
         updateCount(Context::getUpdateCount, (contextName) -> 0, (contextName, it) -> it),
         listSize((context) -> context.getList().size(), (contextName) -> 0, (contextName, it) -> it),
@@ -162,12 +190,12 @@ public class StateHandlerbarHelper extends HandlebarsHelper<Object> {
         }
 
         public Object convertDefaultValue(String contextName, String defaultValue) {
-            logger().info(contextName, String.format("property '%s' using configured default value", name()));
+            logger().info(contextName, "property '%s' using configured default value", name());
             return defaultConverter.apply(contextName, defaultValue);
         }
 
         public Object getBuiltInDefault(String contextName) {
-            logger().info(contextName, String.format("property '%s' using built-in default value", name()));
+            logger().info(contextName, "property '%s' using built-in default value", name());
             return builtInDefault.apply(contextName);
         }
     }
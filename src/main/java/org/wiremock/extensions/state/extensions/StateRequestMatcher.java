@@ -25,17 +25,25 @@ import com.github.tomakehurst.wiremock.matching.MatchResult;
 import com.github.tomakehurst.wiremock.matching.RequestMatcherExtension;
 import com.github.tomakehurst.wiremock.matching.StringValuePattern;
 import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.Lazy;
+import org.wiremock.extensions.state.internal.ParametersCache;
 import org.wiremock.extensions.state.internal.StateExtensionMixin;
+import org.wiremock.extensions.state.internal.TemplateRenderer;
 import org.wiremock.extensions.state.internal.model.Context;
 import org.wiremock.extensions.state.internal.model.ContextTemplateModel;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static com.github.tomakehurst.wiremock.common.LocalNotifier.notifier;
@@ -52,21 +60,15 @@ public class StateRequestMatcher extends RequestMatcherExtension implements Stat
 
     private final WireMockServices wireMockServices;
     private final ContextManager contextManager;
+    private final TemplateRenderer templateRenderer;
+    private final ParametersCache<MatchPlan> matchPlans = new ParametersCache<>(this::compileMatchPlan);
 
-    public StateRequestMatcher(ContextManager contextManager, WireMockServices services) {
+    public StateRequestMatcher(ContextManager contextManager, TemplateRenderer templateRenderer, WireMockServices services) {
         this.contextManager = contextManager;
+        this.templateRenderer = templateRenderer;
         this.wireMockServices = services;
     }
 
-    private static List<Map.Entry<ContextMatcher, Object>> getMatchers(Parameters parameters) {
-        return parameters
-            .entrySet()
-            .stream()
-            .filter(it -> ContextMatcher.from(it.getKey()) != null)
-            .map(it -> Map.entry(ContextMatcher.from(it.getKey()), it.getValue()))
-            .collect(Collectors.toUnmodifiableList());
-    }
-
     private static <T> T mapToObject(Map<String, Object> map, Class<T> klass) {
         try {
             return Json.mapToObject(map, klass);
@@ -97,40 +99,39 @@ public class StateRequestMatcher extends RequestMatcherExtension implements Stat
 
     @Override
     public MatchResult match(Request request, Parameters parameters) {
-        var model = wireMockServices.getTemplateEngine().buildModelForRequest(request);
+        var plan = matchPlans.get(parameters);
+        var model = Lazy.of(() -> wireMockServices.getTemplateEngine().buildModelForRequest(request));
+        var requestId = Optional.ofNullable(request.getId()).map(UUID::toString).orElse(null);
         return Optional
-            .ofNullable(parameters.getString("hasContext", null))
-            .map(template -> hasContext(model, parameters, template))
-            .or(() -> Optional.ofNullable(parameters.getString("hasNotContext", null)).map(template -> hasNotContext(model, template)))
+            .ofNullable(plan.hasContext)
+            .map(template -> hasContext(requestId, model, plan, template))
+            .or(() -> Optional.ofNullable(plan.hasNotContext).map(template -> hasNotContext(requestId, model, template)))
             .orElseThrow(() -> createConfigurationError("Parameters should only contain 'hasContext' or 'hasNotContext'"));
     }
 
-    private MatchResult hasContext(Map<String, Object> model, Parameters parameters, String template) {
-        return contextManager.getContextCopy(renderTemplate(model, template))
-            .map(context -> {
-                List<Map.Entry<ContextMatcher, Object>> matchers = getMatchers(parameters);
-                if (matchers.isEmpty()) {
-                    logger().info(context, "hasContext matched");
-                    return MatchResult.exactMatch();
-                } else {
-                    return calculateMatch(model, context, matchers);
-                }
-            }).orElseGet(MatchResult::noMatch);
+    private MatchResult hasContext(String requestId, Supplier<Map<String, Object>> model, MatchPlan plan, String template) {
+        return contextManager.withContextRead(requestId, renderTemplate(model, template), context -> {
+            if (plan.matchers.isEmpty()) {
+                logger().info(context, "hasContext matched");
+                return MatchResult.exactMatch();
+            } else {
+                return calculateMatch(model, context, plan.matchers);
+            }
+        }).orElseGet(MatchResult::noMatch);
     }
 
-    private MatchResult calculateMatch(Map<String, Object> model, Context context, List<Map.Entry<ContextMatcher, Object>> matchers) {
-        model.put("context", ContextTemplateModel.from(context));
-        var results = matchers
-            .stream()
-            .map(it -> it.getKey().evaluate(context, renderTemplateRecursively(model, it.getValue())))
-            .collect(Collectors.toList());
-
-        return MatchResult.aggregate(results);
+    private MatchResult calculateMatch(Supplier<Map<String, Object>> model, Context context, List<PlannedMatcher> matchers) {
+        var contextModel = Lazy.of(() -> {
+            var result = model.get();
+            result.put("context", ContextTemplateModel.from(context));
+            return result;
+        });
+        return new ContextMatchResult(matchers, it -> it.evaluate(contextModel, context));
     }
 
-    private MatchResult hasNotContext(Map<String, Object> model, String template) {
+    private MatchResult hasNotContext(String requestId, Supplier<Map<String, Object>> model, String template) {
         var context = renderTemplate(model, template);
-        if (contextManager.getContextCopy(context).isEmpty()) {
+        if (!contextManager.hasContext(requestId, context)) {
             logger().info(context, "hasNotContext matched");
             return MatchResult.exactMatch();
         } else {
@@ -138,12 +139,23 @@ public class StateRequestMatcher extends RequestMatcherExtension implements Stat
         }
     }
 
-    String renderTemplate(Object context, String value) {
-        return wireMockServices.getTemplateEngine().getUncachedTemplate(value).apply(context);
+    private MatchPlan compileMatchPlan(Parameters parameters) {
+        var matchers = parameters
+            .entrySet()
+            .stream()
+            .filter(it -> ContextMatcher.from(it.getKey()) != null)
+            .map(it -> new PlannedMatcher(ContextMatcher.from(it.getKey()), it.getValue()))
+            .sorted(Comparator.comparingInt(PlannedMatcher::getCost))
+            .collect(Collectors.toUnmodifiableList());
+        return new MatchPlan(parameters.getString("hasContext", null), parameters.getString("hasNotContext", null), matchers);
+    }
+
+    String renderTemplate(Supplier<Map<String, Object>> context, String value) {
+        return templateRenderer.render(context, value);
     }
 
     @SuppressWarnings("unchecked")
-    Object renderTemplateRecursively(Object context, Object value) {
+    Object renderTemplateRecursively(Supplier<Map<String, Object>> context, Object value) {
         if (value instanceof Collection) {
             Collection<Object> castedCollection = cast(value, Collection.class);
             return castedCollection.stream().map(it -> renderTemplateRecursively(context, it)).collect(Collectors.toList());
@@ -160,93 +172,195 @@ public class StateRequestMatcher extends RequestMatcherExtension implements Stat
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private static boolean isTemplated(Object value) {
+        if (value instanceof Collection) {
+            return ((Collection<Object>) value).stream().anyMatch(StateRequestMatcher::isTemplated);
+        } else if (value instanceof Map) {
+            return ((Map<String, Object>) value).entrySet().stream()
+                .anyMatch(it -> !TemplateRenderer.isLiteral(it.getKey()) || isTemplated(it.getValue()));
+        } else {
+            return !TemplateRenderer.isLiteral(value.toString());
+        }
+    }
+
+    /**
+     * Matcher configuration of a stub, prepared once per {@link Parameters} instance.
+     */
+    private static final class MatchPlan {
+        private final String hasContext;
+        private final String hasNotContext;
+        private final List<PlannedMatcher> matchers;
+
+        MatchPlan(String hasContext, String hasNotContext, List<PlannedMatcher> matchers) {
+            this.hasContext = hasContext;
+            this.hasNotContext = hasNotContext;
+            this.matchers = matchers;
+        }
+    }
+
+    /**
+     * A single context matcher. Configurations without templates are compiled on first use and reused afterwards,
+     * templated ones are compiled after rendering them for the current request.
+     */
+    private final class PlannedMatcher {
+        private final ContextMatcher matcher;
+        private final Object configuration;
+        private final boolean templated;
+        private volatile Function<Context, MatchResult> compiled;
+
+        PlannedMatcher(ContextMatcher matcher, Object configuration) {
+            this.matcher = matcher;
+            this.configuration = configuration;
+            this.templated = isTemplated(configuration);
+        }
+
+        /**
+         * Relative evaluation cost: templated configurations need rendering (and compiling) on every request.
+         */
+        int getCost() {
+            return matcher.cost * 2 + (templated ? 1 : 0);
+        }
+
+        MatchResult evaluate(Supplier<Map<String, Object>> model, Context context) {
+            if (templated) {
+                return matcher.compile(renderTemplateRecursively(model, configuration)).apply(context);
+            }
+            var evaluator = compiled;
+            if (evaluator == null) {
+                evaluator = matcher.compile(renderTemplateRecursively(model, configuration));
+                compiled = evaluator;
+            }
+            return evaluator.apply(context);
+        }
+    }
+
+    /**
+     * Lazily evaluated result of all context matchers of a stub.
+     * <p>
+     * Matchers are expected in ascending order of cost. Checking for an exact match stops at the first matcher not
+     * matching exactly. The distance (e.g. for near-miss reports) evaluates all remaining matchers. Each matcher is
+     * evaluated at most once.
+     */
+    private static final class ContextMatchResult extends MatchResult {
+        private final List<PlannedMatcher> matchers;
+        private final Function<PlannedMatcher, MatchResult> evaluator;
+        private final MatchResult[] results;
+
+        ContextMatchResult(List<PlannedMatcher> matchers, Function<PlannedMatcher, MatchResult> evaluator) {
+            this.matchers = matchers;
+            this.evaluator = evaluator;
+            this.results = new MatchResult[matchers.size()];
+        }
+
+        private MatchResult result(int index) {
+            if (results[index] == null) {
+                results[index] = evaluator.apply(matchers.get(index));
+            }
+            return results[index];
+        }
+
+        @Override
+        public boolean isExactMatch() {
+            for (int i = 0; i < results.length; i++) {
+                if (!result(i).isExactMatch()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public double getDistance() {
+            var allResults = new ArrayList<MatchResult>(results.length);
+            for (int i = 0; i < results.length; i++) {
+                allResults.add(result(i));
+            }
+            return MatchResult.aggregate(allResults).getDistance();
+        }
+    }
+
     private enum ContextMatcher {
 
-        property((Context c, Object object) -> {
+        property(1, (Object object) -> {
             @SuppressWarnings("unchecked") Map<String, Map<String, Object>> mapValue = cast(object, Map.class);
-            var results = mapValue.entrySet().stream().map(entry -> {
-                var patterns = mapToObject(entry.getValue(), StringValuePattern.class);
-                var propertyValue = c.getProperties().get(entry.getKey());
-                return patterns.match(propertyValue);
-            }).collect(Collectors.toList());
-            if (results.isEmpty()) {
-                logger().info(c, "No interpretable matcher was found, defaulting to 'exactMatch'");
-                return MatchResult.exactMatch();
-            } else {
-                return MatchResult.aggregate(results);
-            }
+            var patterns = mapValue.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), mapToObject(entry.getValue(), StringValuePattern.class)))
+                .collect(Collectors.toUnmodifiableList());
+            return (Context c) -> {
+                if (patterns.isEmpty()) {
+                    logger().info(c, "No interpretable matcher was found, defaulting to 'exactMatch'");
+                    return MatchResult.exactMatch();
+                } else {
+                    return MatchResult.aggregate(
+                        patterns.stream().map(it -> it.getValue().match(c.getProperties().get(it.getKey()))).collect(Collectors.toList())
+                    );
+                }
+            };
         }),
 
-        list((Context c, Object object) -> {
+        list(2, (Object object) -> {
             @SuppressWarnings("unchecked") Map<String, Map<String, Map<String, Object>>> mapValue = cast(object, Map.class);
-            var allResults = mapValue.entrySet().stream().map(listIndexEntry -> {
-                Map<String, String> listEntry;
-                switch (listIndexEntry.getKey()) {
-                    case "last":
-                    case "-1":
-                        listEntry = c.getList().getLast();
-                        break;
-                    case "first":
-                        listEntry = c.getList().getFirst();
-                        break;
-                    default:
-                        listEntry = withConvertedNumberGet(c, listIndexEntry.getKey(), (context, value) -> c.getList().get(value.intValue()));
-                }
-                if (listEntry == null) {
-                    return MatchResult.noMatch();
-                } else {
-                    List<MatchResult> results = listIndexEntry.getValue().entrySet().stream().map(entry -> {
-                        var patterns = mapToObject(entry.getValue(), StringValuePattern.class);
-                        var propertyValue = listEntry.get(entry.getKey());
-                        return patterns.match(propertyValue);
-                    }).collect(Collectors.toList());
-                    if (results.isEmpty()) {
+            var listEntryMatchers = mapValue.entrySet().stream().map(listIndexEntry -> {
+                var index = listIndexEntry.getKey();
+                var patterns = listIndexEntry.getValue().entrySet().stream()
+                    .map(entry -> Map.entry(entry.getKey(), mapToObject(entry.getValue(), StringValuePattern.class)))
+                    .collect(Collectors.toUnmodifiableList());
+                return (Function<Context, MatchResult>) (Context c) -> {
+                    Map<String, String> listEntry;
+                    switch (index) {
+                        case "last":
+                        case "-1":
+                            listEntry = c.getList().isEmpty() ? null : c.getList().get(c.getList().size() - 1);
+                            break;
+                        case "first":
+                            listEntry = c.getList().isEmpty() ? null : c.getList().get(0);
+                            break;
+                        default:
+                            listEntry = withConvertedNumberGet(c, index, (context, value) -> c.getList().get(value.intValue()));
+                    }
+                    if (listEntry == null) {
+                        return MatchResult.noMatch();
+                    } else if (patterns.isEmpty()) {
                         logger().info(c, "No interpretable matcher was found, defaulting to 'exactMatch'");
                         return MatchResult.exactMatch();
                     } else {
-                        return MatchResult.aggregate(results);
+                        return MatchResult.aggregate(
+                            patterns.stream().map(it -> it.getValue().match(listEntry.get(it.getKey()))).collect(Collectors.toList())
+                        );
                     }
-                }
-            }).collect(Collectors.toList());
-            return MatchResult.aggregate(allResults);
-        }),
-        hasProperty((Context c, Object object) -> {
-            String stringValue = cast(object, String.class);
-            return toMatchResult(c.getProperties().containsKey(stringValue));
-        }),
-        hasNotProperty((Context c, Object object) -> {
-            String stringValue = cast(object, String.class);
-            return toMatchResult(!c.getProperties().containsKey(stringValue));
-        }),
-        updateCountEqualTo((Context c, Object object) -> {
-            String stringValue = cast(object, String.class);
-            return toMatchResult(withConvertedNumber(c, stringValue, (context, value) -> context.getUpdateCount().equals(value)));
-        }),
-        updateCountLessThan((Context c, Object object) -> {
-            String stringValue = cast(object, String.class);
-            return toMatchResult(withConvertedNumber(c, stringValue, (context, value) -> context.getUpdateCount() < value));
-        }),
-        updateCountMoreThan((Context c, Object object) -> {
-            String stringValue = cast(object, String.class);
-            return toMatchResult(withConvertedNumber(c, stringValue, (context, value) -> context.getUpdateCount() > value));
+                };
+            }).collect(Collectors.toUnmodifiableList());
+            return (Context c) -> MatchResult.aggregate(listEntryMatchers.stream().map(it -> it.apply(c)).collect(Collectors.toList()));
         }),
-        listSizeEqualTo((Context c, Object object) -> {
+        hasProperty(0, (Object object) -> {
             String stringValue = cast(object, String.class);
-            return toMatchResult(withConvertedNumber(c, stringValue, (context, value) -> context.getList().size() == value));
+            return (Context c) -> toMatchResult(c.getProperties().containsKey(stringValue));
         }),
-        listSizeLessThan((Context c, Object object) -> {
+        hasNotProperty(0, (Object object) -> {
             String stringValue = cast(object, String.class);
-            return toMatchResult(withConvertedNumber(c, stringValue, (context, value) -> context.getList().size() < value));
+            return (Context c) -> toMatchResult(!c.getProperties().containsKey(stringValue));
         }),
-        listSizeMoreThan((Context c, Object object) -> {
-            String stringValue = cast(object, String.class);
-            return toMatchResult(withConvertedNumber(c, stringValue, (context, value) -> context.getList().size() > value));
-        });
+        updateCountEqualTo(0, (Object object) -> withConvertedNumber(object, (context, value) -> context.getUpdateCount().equals(value))),
+        updateCountLessThan(0, (Object object) -> withConvertedNumber(object, (context, value) -> context.getUpdateCount() < value)),
+        updateCountMoreThan(0, (Object object) -> withConvertedNumber(object, (context, value) -> context.getUpdateCount() > value)),
+        listSizeEqualTo(0, (Object object) -> withConvertedNumber(object, (context, value) -> context.getList().size() == value)),
+        listSizeLessThan(0, (Object object) -> withConvertedNumber(object, (context, value) -> context.getList().size() < value)),
+        listSizeMoreThan(0, (Object object) -> withConvertedNumber(object, (context, value) -> context.getList().size() > value));
 
-        private final BiFunction<Context, Object, MatchResult> evaluator;
+        private static final Map<String, ContextMatcher> BY_NAME = Arrays.stream(values())
+            .collect(Collectors.toUnmodifiableMap(Enum::name, it -> it));
 
-        ContextMatcher(BiFunction<Context, Object, MatchResult> evaluator) {
-            this.evaluator = evaluator;
+        /**
+         * Relative evaluation cost: existence and count checks are cheap, pattern matching on properties and list
+         * entries is expensive.
+         */
+        private final int cost;
+        private final Function<Object, Function<Context, MatchResult>> compiler;
+
+        ContextMatcher(int cost, Function<Object, Function<Context, MatchResult>> compiler) {
+            this.cost = cost;
+            this.compiler = compiler;
         }
 
         private static MatchResult toMatchResult(boolean result) {
@@ -254,15 +368,16 @@ public class StateRequestMatcher extends RequestMatcherExtension implements Stat
         }
 
         public static ContextMatcher from(String from) {
-            return Arrays.stream(values()).filter(it -> it.name().equals(from)).findFirst().orElse(null);
+            return BY_NAME.get(from);
         }
 
-        private static boolean withConvertedNumber(Context context, String stringValue, BiFunction<Context, Long, Boolean> evaluator) {
+        private static Function<Context, MatchResult> withConvertedNumber(Object object, BiFunction<Context, Long, Boolean> evaluator) {
+            String stringValue = cast(object, String.class);
             try {
                 var longValue = Long.valueOf(stringValue);
-                return evaluator.apply(context, longValue);
+                return (Context c) -> toMatchResult(evaluator.apply(c, longValue));
             } catch (NumberFormatException ex) {
-                return false;
+                return (Context c) -> MatchResult.noMatch();
             }
         }
 
@@ -275,8 +390,11 @@ public class StateRequestMatcher extends RequestMatcherExtension implements Stat
             }
         }
 
-        public MatchResult evaluate(Context context, Object value) {
-            return this.evaluator.apply(context, value);
+        /**
+         * Turns a rendered configuration into an evaluator for contexts.
+         */
+        public Function<Context, MatchResult> compile(Object configuration) {
+            return compiler.apply(configuration);
         }
     }
 }
@@ -18,12 +18,12 @@ package org.wiremock.extensions.state.extensions;
 import com.github.tomakehurst.wiremock.extension.Parameters;
 import com.github.tomakehurst.wiremock.extension.ServeEventListener;
 import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
-import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.ServeEventScopeManager;
 import org.wiremock.extensions.state.internal.StateExtensionMixin;
 import org.wiremock.extensions.state.internal.TransactionManager;
 
 /**
- * Persist transaction-related information in the context.
+ * Releases the transactions and other request-scoped data of a request once it completes.
  * <p>
  * DO NOT REGISTER directly. Use {@link org.wiremock.extensions.state.StateExtension} instead.
  *
@@ -32,10 +32,12 @@ import org.wiremock.extensions.state.internal.TransactionManager;
 public class TransactionEventListener implements ServeEventListener, StateExtensionMixin {
 
     private final TransactionManager transactionManager;
+    private final ServeEventScopeManager serveEventScopeManager;
 
 
-    public TransactionEventListener(TransactionManager transactionManager) {
+    public TransactionEventListener(TransactionManager transactionManager, ServeEventScopeManager serveEventScopeManager) {
         this.transactionManager = transactionManager;
+        this.serveEventScopeManager = serveEventScopeManager;
     }
 
     @Override
@@ -50,9 +52,8 @@ public class TransactionEventListener implements ServeEventListener, StateExtens
 
     @Override
     public void afterComplete(ServeEvent serveEvent, Parameters parameters) {
-
-        String requestId = serveEvent.getId().toString();
-        var contextNames = transactionManager.getContextNamesByRequestId(requestId);
-        contextNames.forEach((contextName) -> transactionManager.deleteTransaction(requestId, contextName));
+        var requestId = serveEvent.getId().toString();
+        transactionManager.deleteTransactions(requestId);
+        serveEventScopeManager.deleteScope(requestId);
     }
 }
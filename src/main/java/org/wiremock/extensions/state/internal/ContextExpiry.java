@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.wiremock.extensions.state.internal.model.Context;
+import org.wiremock.extensions.state.internal.model.Expiration;
+import org.wiremock.extensions.state.internal.model.Wipes;
+
+import java.time.Duration;
+
+/**
+ * Expires store entries after their last write or access, using the context's own expiration if set. Removing expired
+ * list entries does not count as a write. Wipes never expire: wiped contexts would be visible again otherwise.
+ */
+public class ContextExpiry implements Expiry<String, Object> {
+
+    private final Expiration defaultExpiration;
+
+    public ContextExpiry(Expiration defaultExpiration) {
+        this.defaultExpiration = defaultExpiration;
+    }
+
+    @Override
+    public long expireAfterCreate(String key, Object value, long currentTime) {
+        if (value instanceof Wipes) {
+            return Long.MAX_VALUE;
+        }
+        return saturatedNanos(getExpiration(value).getDuration());
+    }
+
+    @Override
+    public long expireAfterUpdate(String key, Object value, long currentTime, long currentDuration) {
+        if (value instanceof Wipes) {
+            return Long.MAX_VALUE;
+        }
+        if (value instanceof Context && ((Context) value).isListCleanup()) {
+            return currentDuration;
+        }
+        return saturatedNanos(getExpiration(value).getDuration());
+    }
+
+    @Override
+    public long expireAfterRead(String key, Object value, long currentTime, long currentDuration) {
+        if (value instanceof Wipes) {
+            return currentDuration;
+        }
+        var expiration = getExpiration(value);
+        return expiration.isAfterAccess() ? saturatedNanos(expiration.getDuration()) : currentDuration;
+    }
+
+    private Expiration getExpiration(Object value) {
+        if (value instanceof Context) {
+            return ((Context) value).getExpiration().orElse(defaultExpiration);
+        }
+        return defaultExpiration;
+    }
+
+    private static long saturatedNanos(Duration duration) {
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException ex) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
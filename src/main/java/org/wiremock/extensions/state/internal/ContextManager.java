@@ -15,26 +15,56 @@
  */
 package org.wiremock.extensions.state.internal;
 
+import com.github.tomakehurst.wiremock.store.ObjectStore;
 import com.github.tomakehurst.wiremock.store.Store;
+import org.wiremock.extensions.state.PrefixSearchableStore;
 import org.wiremock.extensions.state.internal.model.Context;
+import org.wiremock.extensions.state.internal.model.ContextList;
+import org.wiremock.extensions.state.internal.model.ContextUpdate;
+import org.wiremock.extensions.state.internal.model.HybridClock;
+import org.wiremock.extensions.state.internal.model.Transaction;
+import org.wiremock.extensions.state.internal.model.Wipes;
 
-import java.util.LinkedList;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Optional;
-import java.util.function.Consumer;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.wiremock.extensions.state.internal.ExtensionLogger.logger;
 
 public class ContextManager {
 
+    private static final String REGEX_META_CHARACTERS = "\\^$.|?*+()[]{}";
+    private static final String WIPES_KEY = "contextWipes";
     private final String CONTEXT_KEY_PREFIX = "context:";
     private final Store<String, Object> store;
     private final TransactionManager transactionManager;
+    private final Clock clock;
 
     public ContextManager(Store<String, Object> store, TransactionManager transactionManager) {
+        this(store, transactionManager, Clock.systemUTC());
+    }
+
+    /**
+     * @param clock Wall clock used for the expiration of list entries.
+     */
+    public ContextManager(Store<String, Object> store, TransactionManager transactionManager, Clock clock) {
         this.store = store;
         this.transactionManager = transactionManager;
+        this.clock = clock;
     }
 
     private static Supplier<Context> createNewContext(String contextName) {
@@ -46,10 +76,43 @@ public class ContextManager {
      * Searches for the context by the given name.
      *
      * @param contextName The context name to search for.
-     * @return Optional with a copy of the context - or empty.
+     * @return Optional with an immutable snapshot of the context - or empty.
      */
     public Optional<Context> getContextCopy(String contextName) {
-        return getSafeContextCopy(contextName);
+        return getContextSnapshot(contextName);
+    }
+
+    /**
+     * Evaluates a function against a read-only, consistent view of a context without copying it.
+     * <p>
+     * Within a request, all reads of a context are served from the same snapshot (unless the request changes the
+     * context itself). The function must not keep references to the context beyond its own scope if it relies on seeing
+     * current data.
+     *
+     * @param requestId   ID of the request performing this action. If {@code null}, the current version is read.
+     * @param contextName The context name to search for.
+     * @param reader      Function extracting the required data from the context.
+     * @param <T>         Type of the extracted data.
+     * @return Optional with the result of the function - or empty if the context does not exist or the result is {@code null}.
+     */
+    public <T> Optional<T> withContextRead(String requestId, String contextName, Function<Context, T> reader) {
+        if (requestId == null) {
+            return getContextSnapshot(contextName).map(reader);
+        }
+        return transactionManager.getTransaction(requestId, contextName)
+            .getSnapshot(() -> getContextSnapshot(contextName))
+            .map(reader);
+    }
+
+    /**
+     * Checks whether a context exists.
+     *
+     * @param requestId   ID of the request performing this action. If {@code null}, the current version is read.
+     * @param contextName The context name to search for.
+     * @return true if the context exists.
+     */
+    public boolean hasContext(String requestId, String contextName) {
+        return withContextRead(requestId, contextName, context -> true).isPresent();
     }
 
     /**
@@ -61,82 +124,313 @@ public class ContextManager {
     public void deleteContext(String requestId, String contextName) {
         transactionManager.withTransaction(requestId, contextName, (transaction) -> {
             store.remove(createContextKey(contextName));
+            transaction.recordDeletion();
             logger().info(contextName, "deleted");
         });
     }
 
     /**
-     * Iterates over all contexts, passing a safe copy to the consumer.
+     * Deletes the contexts with the given names. Only the given keys are accessed, non-existing contexts are ignored.
+     *
+     * @param requestId    ID of the request performing this action.
+     * @param contextNames Names of the contexts to delete.
+     */
+    public void deleteContexts(String requestId, Collection<String> contextNames) {
+        new LinkedHashSet<>(contextNames).forEach(contextName -> {
+            var contextKey = createContextKey(contextName);
+            var wipes = getWipes();
+            transactionManager.withTransaction(requestId, contextName, (transaction) -> {
+                if (removeIf(requestId, contextKey, context -> !wipes.isWiped(context))) {
+                    transaction.recordDeletion();
+                    logger().info(contextName, "deleted");
+                }
+            });
+        });
+    }
+
+    /**
+     * Deletes all contexts whose name matches the pattern.
      * <p>
-     * Silently ignores non-existing contexts.
+     * If the pattern starts with a literal prefix and the store supports it ({@link PrefixSearchableStore}), only the
+     * contexts starting with that prefix are visited. Otherwise, all context names are checked (without accessing the
+     * contexts themselves).
      *
      * @param requestId ID of the request performing this action.
-     * @param consumer  Action to be performed on the copy of the context.
-     */
-    public void onEach(String requestId, Consumer<Context> consumer) {
-        store.getAllKeys()
-            .filter(it -> it.startsWith(CONTEXT_KEY_PREFIX))
-            .forEach(key -> {
-                var contextName = getContextNameFromContextKey(key);
-                transactionManager
-                    .withTransaction(
-                        requestId,
-                        contextName,
-                        (transaction) -> {
-                            getSafeContextCopy(contextName).ifPresent(consumer);
-                        });
+     * @param pattern   Pattern the whole context name has to match.
+     */
+    public void deleteContextsMatching(String requestId, Pattern pattern) {
+        var contextNames = getContextKeysWithPrefix(CONTEXT_KEY_PREFIX + getLiteralPrefix(pattern.pattern()))
+            .map(this::getContextNameFromContextKey)
+            .filter(it -> pattern.matcher(it).matches())
+            .collect(Collectors.toList());
+        deleteContexts(requestId, contextNames);
+    }
+
+    private Stream<String> getContextKeysWithPrefix(String keyPrefix) {
+        return store instanceof PrefixSearchableStore
+            ? ((PrefixSearchableStore) store).getKeysWithPrefix(keyPrefix)
+            : store.getAllKeys().filter(it -> it.startsWith(keyPrefix));
+    }
+
+    /**
+     * Determines the literal text every match of the regex starts with (empty if unknown).
+     */
+    static String getLiteralPrefix(String regex) {
+        if (regex.indexOf('|') >= 0) {
+            return "";
+        }
+        var prefix = new StringBuilder();
+        var start = regex.startsWith("^") ? 1 : 0;
+        for (int i = start; i < regex.length(); i++) {
+            var current = regex.charAt(i);
+            int length = 1;
+            if (current == '\\') {
+                if (i + 1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                    break;
+                }
+                current = regex.charAt(i + 1);
+                length = 2;
+            } else if (REGEX_META_CHARACTERS.indexOf(current) >= 0) {
+                break;
+            }
+            var next = i + length < regex.length() ? regex.charAt(i + length) : 0;
+            if (next == '?' || next == '*' || next == '{') {
+                break;
+            }
+            prefix.append(current);
+            i += length - 1;
+        }
+        return prefix.toString();
+    }
+
+    /**
+     * Removes a context if it exists and fulfills the condition. Does not modify it otherwise.
+     *
+     * @return true if the context existed and fulfilled the condition.
+     */
+    private boolean removeIf(String requestId, String contextKey, Predicate<Context> condition) {
+        if (store.get(contextKey).filter(it -> condition.test((Context) it)).isEmpty()) {
+            return false;
+        }
+        var removed = new boolean[1];
+        if (store instanceof ObjectStore) {
+            ((ObjectStore) store).<Context>compute(contextKey, current -> {
+                removed[0] = current != null && condition.test(current);
+                return removed[0] ? null : current;
+            });
+        } else {
+            transactionManager.withTransaction(requestId, getContextNameFromContextKey(contextKey), (transaction) -> {
+                removed[0] = store.get(contextKey).filter(it -> condition.test((Context) it)).isPresent();
+                if (removed[0]) {
+                    store.remove(contextKey);
+                }
             });
+        }
+        return removed[0];
     }
 
+    /**
+     * Deletes all contexts.
+     *
+     * @param requestId ID of the request performing this action.
+     * @see #deleteAllContexts(String, String)
+     */
     public void deleteAllContexts(String requestId) {
-        store.getAllKeys()
-            .filter(it -> it.startsWith(CONTEXT_KEY_PREFIX))
-            .forEach(key -> {
-                transactionManager
-                    .withTransaction(
-                        requestId,
-                        getContextNameFromContextKey(key),
-                        (transaction) -> {
-                            store.remove(key);
-                        });
-                logger().info("allContexts", "deleted");
+        deleteAllContexts(requestId, "");
+    }
+
+    /**
+     * Deletes all contexts of a namespace in constant time.
+     * <p>
+     * The contexts are hidden immediately (by recording the time of the wipe in the store), their removal from the
+     * store happens in the background. Later reads of the request do not see the deleted contexts either.
+     * <p>
+     * Namespace wipes are an internal API for code embedding the extension: they are not exposed via {@code deleteState}
+     * or the admin API.
+     *
+     * @param requestId ID of the request performing this action.
+     * @param namespace Prefix of the names of the contexts to delete (empty for all contexts).
+     */
+    public void deleteAllContexts(String requestId, String namespace) {
+        var time = HybridClock.now();
+        updateWipes(requestId, wipes -> wipes.withWipe(namespace, time));
+        transactionManager.withTransactionsWithPrefix(requestId, namespace, Transaction::recordDeletion);
+        var wipeName = namespace.isEmpty() ? "allContexts" : namespace;
+        logger().info(wipeName, "deleted");
+        CompletableFuture
+            .runAsync(() -> sweep(namespace, time))
+            .exceptionally(ex -> {
+                logger().error(wipeName, "removal failed: %s", ex.getMessage());
+                return null;
             });
     }
 
-    public void createOrUpdateContextState(String requestId, String contextName, Map<String, String> properties) {
-        transactionManager.withTransaction(requestId, contextName, (transaction) -> {
-            var contextKey = createContextKey(contextName);
-            var context = store.get(contextKey)
-                .map(it -> (Context) it)
-                .orElseGet(createNewContext(contextName));
-            properties.forEach((k, v) -> {
-                if (v.equals("null")) {
-                    context.getProperties().remove(k);
-                    logger().info(contextName, String.format("property '%s' removed", k));
+    /**
+     * Removes the contexts hidden by a wipe from the store.
+     */
+    private void sweep(String namespace, long time) {
+        var sweepId = UUID.randomUUID().toString();
+        try {
+            var wipes = getWipes();
+            getContextKeysWithPrefix(CONTEXT_KEY_PREFIX + namespace)
+                .collect(Collectors.toList())
+                .forEach(key -> removeIf(sweepId, key, wipes::isWiped));
+            updateWipes(sweepId, it -> it.withoutWipe(namespace, time));
+        } finally {
+            transactionManager.deleteTransactions(sweepId);
+        }
+    }
+
+    private Wipes getWipes() {
+        return store.get(WIPES_KEY).map(it -> (Wipes) it).orElse(Wipes.NONE);
+    }
+
+    private void updateWipes(String requestId, UnaryOperator<Wipes> update) {
+        if (store instanceof ObjectStore) {
+            ((ObjectStore) store).<Wipes>compute(WIPES_KEY, current -> emptyToNull(update.apply(Optional.ofNullable(current).orElse(Wipes.NONE))));
+        } else {
+            transactionManager.withTransaction(requestId, WIPES_KEY, (transaction) -> {
+                var result = emptyToNull(update.apply(getWipes()));
+                if (result == null) {
+                    store.remove(WIPES_KEY);
                 } else {
-                    context.getProperties().put(k, v);
-                    logger().info(contextName, String.format("property '%s' updated", k));
+                    store.put(WIPES_KEY, result);
                 }
             });
-            transaction.recordWrite(context::incUpdateCount);
-            store.put(contextKey, context);
+        }
+    }
+
+    private static Wipes emptyToNull(Wipes wipes) {
+        return wipes.isEmpty() ? null : wipes;
+    }
+
+    public void createOrUpdateContextState(String requestId, String contextName, Map<String, String> properties) {
+        createOrUpdateContext(requestId, contextName, ContextUpdate.create().withProperties(properties));
+    }
+
+    /**
+     * Updates the list of a context.
+     *
+     * @param requestId   ID of the request performing this action.
+     * @param contextName Name of the context to update.
+     * @param update      Function returning the new version of the list.
+     */
+    public void createOrUpdateContextList(String requestId, String contextName, UnaryOperator<ContextList> update) {
+        updateContext(requestId, contextName, (transaction, context) ->
+            transaction.recordWrite(context.withList(update.apply(context.getList())))
+        );
+    }
+
+    /**
+     * Applies all changes of an update to a context as a single unit of work.
+     * <p>
+     * The changes are published as one new version of the context, counting as one update. Readers either see none or
+     * all of them.
+     *
+     * @param requestId   ID of the request performing this action.
+     * @param contextName Name of the context to update.
+     * @param update      Changes to apply.
+     */
+    public void createOrUpdateContext(String requestId, String contextName, ContextUpdate update) {
+        updateContext(requestId, contextName, (transaction, context) -> {
+            var result = context;
+            if (update.getProperties() != null) {
+                result = result.withProperties(mergeProperties(contextName, result.getProperties(), update.getProperties()));
+            }
+            if (update.hasListChanges()) {
+                result = updateList(contextName, result, update);
+            }
+            if (update.getExpiration() != null) {
+                result = result.withExpiration(update.getExpiration());
+                logger().info(contextName, "expiration set to %s", update.getExpiration());
+            }
+            return transaction.recordWrite(result);
         });
     }
 
-    public void createOrUpdateContextList(String requestId, String contextName, Consumer<LinkedList<Map<String, String>>> consumer) {
-        transactionManager.withTransaction(requestId, contextName, (transaction) -> {
-            var contextKey = createContextKey(contextName);
-            var context = store.get(contextKey)
-                .map(it -> (Context) it)
-                .orElseGet(createNewContext(contextName));
-            consumer.accept(context.getList());
-            transaction.recordWrite(context::incUpdateCount);
-            store.put(contextKey, context);
+    private Context updateList(String contextName, Context context, ContextUpdate update) {
+        var list = context.getList();
+        if (update.getIndexedListProperties() != null) {
+            list = list.withIndexedProperties(update.getIndexedListProperties());
+        }
+        var deadline = getListEntryDeadline(update.getListEntryExpiration());
+        if (update.getAddFirst() != null) {
+            list = list.withAddFirst(update.getAddFirst(), deadline);
+            logger().info(contextName, "list::addFirst");
+        }
+        if (update.getAddLast() != null) {
+            list = list.withAddLast(update.getAddLast(), deadline);
+            logger().info(contextName, "list::addLast");
+        }
+        return context.withList(list);
+    }
+
+    /**
+     * Calculates the deadline of list entries on the wall clock, so it stays valid for stores shared between JVMs.
+     * Durations beyond the range of the clock never expire.
+     */
+    private long getListEntryDeadline(Duration expiration) {
+        if (expiration == null) {
+            return ContextList.NO_DEADLINE;
+        }
+        try {
+            return Math.addExact(clock.millis(), expiration.toMillis());
+        } catch (ArithmeticException ex) {
+            return ContextList.NO_DEADLINE;
+        }
+    }
+
+    private static Map<String, String> mergeProperties(String contextName, Map<String, String> current, Map<String, String> properties) {
+        var newProperties = new HashMap<>(current);
+        properties.forEach((k, v) -> {
+            if (v.equals("null")) {
+                newProperties.remove(k);
+                logger().info(contextName, "property '%s' removed", k);
+            } else {
+                newProperties.put(k, v);
+                logger().info(contextName, "property '%s' updated", k);
+            }
         });
+        return newProperties;
+    }
+
+    /**
+     * Publishes a new version of a context, creating the context if it does not exist.
+     * <p>
+     * Stores supporting atomic computation (like {@link org.wiremock.extensions.state.CaffeineStore}) apply the update
+     * as a single atomic update of the context's key. Other stores fall back to a read-modify-write under the
+     * context's transaction lock.
+     */
+    private void updateContext(String requestId, String contextName, BiFunction<Transaction, Context, Context> update) {
+        var contextKey = createContextKey(contextName);
+        var wipes = getWipes();
+        if (store instanceof ObjectStore) {
+            var transaction = transactionManager.getTransaction(requestId, contextName);
+            ((ObjectStore) store).<Context>compute(contextKey, current ->
+                update.apply(transaction, Optional.ofNullable(current)
+                    .filter(it -> !wipes.isWiped(it))
+                    .map(this::expireListEntries)
+                    .orElseGet(createNewContext(contextName)))
+            );
+        } else {
+            transactionManager.withTransaction(requestId, contextName, (transaction) -> {
+                var context = store.get(contextKey)
+                    .map(it -> (Context) it)
+                    .filter(it -> !wipes.isWiped(it))
+                    .map(this::expireListEntries)
+                    .orElseGet(createNewContext(contextName));
+                store.put(contextKey, update.apply(transaction, context));
+            });
+        }
     }
 
     public Long numUpdates(String contextName) {
-        return store.get(createContextKey(contextName)).map(it -> ((Context) it).getUpdateCount()).orElse(0L);
+        var wipes = getWipes();
+        return store.get(createContextKey(contextName))
+            .map(it -> (Context) it)
+            .filter(it -> !wipes.isWiped(it))
+            .map(Context::getUpdateCount)
+            .orElse(0L);
     }
 
     private String getContextNameFromContextKey(String key) {
@@ -147,7 +441,29 @@ public class ContextManager {
         return CONTEXT_KEY_PREFIX + contextName;
     }
 
-    private Optional<Context> getSafeContextCopy(String contextName) {
-        return store.get(createContextKey(contextName)).map(it -> (Context) it).map(Context::new);
+    /**
+     * Reads a context, removing expired list entries. The check is cheap as long as no entry expired; otherwise, stores
+     * supporting atomic computation persist the cleaned up context, so only the first read after an expiration pays
+     * for it. Persisting the cleanup does not count as a write for the expiration of the context (see
+     * {@link Context#isListCleanup()}).
+     */
+    private Optional<Context> getContextSnapshot(String contextName) {
+        var contextKey = createContextKey(contextName);
+        var wipes = getWipes();
+        var context = store.get(contextKey).map(it -> (Context) it).filter(it -> !wipes.isWiped(it));
+        if (context.isEmpty() || !context.get().hasExpiredListEntries(clock.millis())) {
+            return context;
+        }
+        if (store instanceof ObjectStore) {
+            return Optional.ofNullable(((ObjectStore) store).<Context>compute(contextKey, current ->
+                Optional.ofNullable(current).map(this::expireListEntries).orElse(null)
+            )).filter(it -> !wipes.isWiped(it));
+        }
+        return context.map(this::expireListEntries);
+    }
+
+    private Context expireListEntries(Context context) {
+        var now = clock.millis();
+        return context.hasExpiredListEntries(now) ? context.withoutExpiredListEntries(now) : context;
     }
 }
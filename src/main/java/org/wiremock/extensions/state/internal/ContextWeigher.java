@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal;
+
+import com.github.benmanes.caffeine.cache.Weigher;
+import org.wiremock.extensions.state.internal.model.Context;
+import org.wiremock.extensions.state.internal.model.Footprint;
+import org.wiremock.extensions.state.internal.model.Wipes;
+
+/**
+ * Estimates the heap footprint of store entries in bytes (see {@link Footprint}).
+ * <p>
+ * The weight of a context is maintained with each change of the context, so weighing is O(1). Wipes weigh nothing, so
+ * they are never evicted: evicting them would make wiped contexts visible again.
+ */
+public class ContextWeigher implements Weigher<String, Object> {
+
+    @Override
+    public int weigh(String key, Object value) {
+        if (value instanceof Wipes) {
+            return 0;
+        }
+        var weight = Footprint.OBJECT_OVERHEAD + Footprint.of(key);
+        if (value instanceof Context) {
+            weight += ((Context) value).getWeight();
+        }
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+}
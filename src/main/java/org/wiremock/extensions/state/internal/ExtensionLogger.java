@@ -15,42 +15,107 @@
  */
 package org.wiremock.extensions.state.internal;
 
+import com.github.tomakehurst.wiremock.common.Slf4jNotifier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.wiremock.extensions.state.internal.model.Context;
 
+import java.util.Optional;
+
 import static com.github.tomakehurst.wiremock.common.LocalNotifier.notifier;
 
+/**
+ * Logger for context related messages.
+ * <p>
+ * Whether info messages are printed is decided by the notifier (e.g. its {@code verbose} flag), which the extension
+ * can't query. To avoid building info messages that are discarded anyway, disable them with the system property
+ * {@code wiremock.state.verbose=false} (or the environment variable {@code WIREMOCK_STATE_VERBOSE=false}). For
+ * WireMock's SLF4J notifier, they are also skipped if info is disabled for its logger. Use the overloads taking
+ * arguments instead of formatting messages upfront.
+ */
 public class ExtensionLogger {
 
-    private ExtensionLogger() {
+    private static final String VERBOSE = "wiremock.state.verbose";
 
+    private final boolean verbose;
+
+    private ExtensionLogger(boolean verbose) {
+        this.verbose = verbose;
     }
 
     public static ExtensionLogger logger() {
         return InstanceHolder.instance;
     }
 
+    /**
+     * @return false if info messages are disabled for the extension or known to be discarded by the current notifier.
+     */
+    public boolean isInfoEnabled() {
+        return verbose && (!(notifier() instanceof Slf4jNotifier) || Slf4jLevel.isInfoEnabled());
+    }
+
     public void info(Context context, String message) {
-        notifier().info(buildMessage(context.getContextName(), message));
+        info(context.getContextName(), message);
     }
 
     public void error(Context context, String message) {
-        notifier().error(buildMessage(context.getContextName(), message));
+        error(context.getContextName(), message);
     }
 
     public void info(String contextName, String message) {
-        notifier().info(buildMessage(contextName, message));
+        if (isInfoEnabled()) {
+            notifier().info(buildMessage(contextName, message));
+        }
+    }
+
+    /**
+     * Logs an info message, formatting it only if info messages are printed.
+     *
+     * @param contextName Name of the context.
+     * @param format      Format of the message, see {@link String#format(String, Object...)}.
+     * @param arg         Argument of the format.
+     */
+    public void info(String contextName, String format, Object arg) {
+        if (isInfoEnabled()) {
+            notifier().info(buildMessage(contextName, String.format(format, arg)));
+        }
     }
 
     public void error(String contextName, String message) {
         notifier().error(buildMessage(contextName, message));
     }
 
+    public void error(String contextName, String format, Object arg) {
+        notifier().error(buildMessage(contextName, String.format(format, arg)));
+    }
+
     private String buildMessage(String contextName, String message) {
-        return String.format("Context '%s': %s", contextName, message);
+        return "Context '" + contextName + "': " + message;
+    }
+
+    /**
+     * Level of the logger used by {@link Slf4jNotifier}. Only loaded if that notifier is used.
+     */
+    private static final class Slf4jLevel {
+        private static final Logger log = getLogger();
+
+        private static Logger getLogger() {
+            try {
+                return LoggerFactory.getLogger("WireMock");
+            } catch (LinkageError e) {
+                return null;
+            }
+        }
+
+        static boolean isInfoEnabled() {
+            return log == null || log.isInfoEnabled();
+        }
     }
 
     private static final class InstanceHolder {
-        private static final ExtensionLogger instance = new ExtensionLogger();
+        private static final ExtensionLogger instance = new ExtensionLogger(
+            !"false".equalsIgnoreCase(Optional.ofNullable(System.getProperty(VERBOSE)).orElseGet(() -> System.getenv("WIREMOCK_STATE_VERBOSE")))
+        );
     }
 
 }
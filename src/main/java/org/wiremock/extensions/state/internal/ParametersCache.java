@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+
+import java.util.function.Function;
+
+/**
+ * Caches objects derived from extension parameters.
+ * <p>
+ * Entries are keyed by the identity of the {@link Parameters} instance of a stub and held weakly: once a stub is
+ * changed or removed, its parameters become unreachable and the derived object is dropped with them.
+ *
+ * @param <T> Type of the derived object.
+ */
+public class ParametersCache<T> {
+
+    private final Cache<Parameters, T> cache = Caffeine.newBuilder().weakKeys().build();
+    private final Function<Parameters, T> factory;
+
+    public ParametersCache(Function<Parameters, T> factory) {
+        this.factory = factory;
+    }
+
+    public T get(Parameters parameters) {
+        return cache.get(parameters, factory);
+    }
+}
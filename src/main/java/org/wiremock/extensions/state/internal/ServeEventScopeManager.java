@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.tomakehurst.wiremock.extension.WireMockServices;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import org.wiremock.extensions.state.internal.model.ServeEventScope;
+
+import java.time.Duration;
+
+/**
+ * Keeps data shared by all state extension components while a request is served.
+ * <p>
+ * Scopes are released once the request completes. The registry is bounded so requests that never complete cannot grow
+ * it indefinitely.
+ */
+public class ServeEventScopeManager {
+
+    private static final int MAX_OPEN_REQUESTS = 10_000;
+    private static final Duration MAX_REQUEST_DURATION = Duration.ofMinutes(5);
+    private final Cache<String, ServeEventScope> scopes = Caffeine.newBuilder()
+        .maximumSize(MAX_OPEN_REQUESTS)
+        .expireAfterWrite(MAX_REQUEST_DURATION)
+        .build();
+
+    private final WireMockServices wireMockServices;
+
+    public ServeEventScopeManager(WireMockServices wireMockServices) {
+        this.wireMockServices = wireMockServices;
+    }
+
+    public ServeEventScope getScope(ServeEvent serveEvent) {
+        return scopes.get(
+            serveEvent.getId().toString(),
+            it -> new ServeEventScope(serveEvent, wireMockServices.getTemplateEngine()::buildModelForRequest)
+        );
+    }
+
+    /**
+     * Releases the scope of a request.
+     *
+     * @param requestId ID of the completed request.
+     */
+    public void deleteScope(String requestId) {
+        scopes.invalidate(requestId);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.tomakehurst.wiremock.extension.WireMockServices;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.HandlebarsOptimizedTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * Renders the templates used in state extension configurations.
+ * <p>
+ * Compiled templates are kept in a bounded cache keyed by their source. Strings without any handlebars expression are
+ * returned as they are without involving handlebars at all.
+ */
+public class TemplateRenderer {
+
+    private static final int MAX_CACHED_TEMPLATES = 10_000;
+    private static final String EXPRESSION_START = "{{";
+
+    private final WireMockServices wireMockServices;
+    private final Cache<String, HandlebarsOptimizedTemplate> templates = Caffeine.newBuilder()
+        .maximumSize(MAX_CACHED_TEMPLATES)
+        .build();
+
+    public TemplateRenderer(WireMockServices wireMockServices) {
+        this.wireMockServices = wireMockServices;
+    }
+
+    public static boolean isLiteral(String template) {
+        return !template.contains(EXPRESSION_START);
+    }
+
+    public String render(Object model, String template) {
+        return render(() -> model, template);
+    }
+
+    /**
+     * Renders a template, requesting the model only if the template actually needs one.
+     */
+    public String render(Supplier<?> model, String template) {
+        if (isLiteral(template)) {
+            return template;
+        }
+        return templates.get(template, it -> wireMockServices.getTemplateEngine().getUncachedTemplate(it)).apply(model.get());
+    }
+}
@@ -15,56 +15,99 @@
  */
 package org.wiremock.extensions.state.internal;
 
-import com.github.tomakehurst.wiremock.store.Store;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
 import org.wiremock.extensions.state.internal.model.Transaction;
 
-import java.util.HashMap;
-import java.util.HashSet;
+import java.time.Duration;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
-import java.util.function.Function;
 
+/**
+ * Keeps track of the transactions of a request and serializes access to contexts.
+ * <p>
+ * Transactions are request-scoped: they are kept apart from the context store and released once the request
+ * completes. Transactions of requests that never complete (e.g. requests matched again by verifications or near-miss
+ * reports after they completed) expire {@link #MAX_REQUEST_DURATION} after the request started using them.
+ * <p>
+ * Locking is striped by context name: operations on different contexts do not contend unless their names
+ * share a lock stripe.
+ */
 public class TransactionManager {
 
-    private final String TRANSACTION_KEY_PREFIX = "transaction:";
-    private final Store<String, Object> store;
+    public static final Duration MAX_REQUEST_DURATION = Duration.ofMinutes(5);
+    private static final int LOCK_STRIPES = 256;
+    private final Cache<String, Map<String, Transaction>> transactions;
+    private final Object[] locks = new Object[LOCK_STRIPES];
 
-    public TransactionManager(Store<String, Object> store) {
-        this.store = store;
+    public TransactionManager() {
+        this(Ticker.systemTicker());
     }
 
-    public void withTransaction(String requestId, String contextName, Consumer<Transaction> consumer) {
-        var transactionKey = createTransactionKey(requestId);
-        synchronized (store) {
-            @SuppressWarnings("unchecked") var requestTransactions = store.get(transactionKey).map(it -> (Map<String, Transaction>) it).orElse(new HashMap<>());
-            var contextTransaction = requestTransactions.getOrDefault(contextName, new Transaction(contextName));
-            try {
-                consumer.accept(contextTransaction);
-            } finally {
-                requestTransactions.put(contextName, contextTransaction);
-                store.put(transactionKey, requestTransactions);
-            }
+    /**
+     * @param ticker Time source for the expiration of transactions.
+     */
+    public TransactionManager(Ticker ticker) {
+        transactions = Caffeine.newBuilder().ticker(ticker).expireAfterWrite(MAX_REQUEST_DURATION).build();
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
         }
     }
 
-    public void deleteTransaction(String requestId, String contextName) {
-        var transactionKey = createTransactionKey(requestId);
-        synchronized (store) {
-            @SuppressWarnings("unchecked") var requestTransactions = store.get(transactionKey).map(it -> (Map<String, Transaction>) it).orElse(new HashMap<>());
-            requestTransactions.remove(contextName);
+    public void withTransaction(String requestId, String contextName, Consumer<Transaction> consumer) {
+        var requestTransactions = getRequestTransactions(requestId);
+        synchronized (lockFor(contextName)) {
+            var contextTransaction = requestTransactions.computeIfAbsent(contextName, Transaction::new);
+            consumer.accept(contextTransaction);
         }
     }
 
-    public Set<String> getContextNamesByRequestId(String requestId) {
-        var transactionKey = createTransactionKey(requestId);
-        synchronized (store) {
-            @SuppressWarnings("unchecked") var requestTransactions = store.get(transactionKey).map(it -> (Map<String, Transaction>) it).orElse(new HashMap<>());
-            return new HashSet<>(requestTransactions.keySet());
+    /**
+     * Returns the transaction of a request for a context without acquiring the context's lock.
+     * <p>
+     * Only to be used when access to the context is already serialized by other means, e.g. by an atomic store update.
+     */
+    public Transaction getTransaction(String requestId, String contextName) {
+        return getRequestTransactions(requestId).computeIfAbsent(contextName, Transaction::new);
+    }
+
+    /**
+     * Applies a consumer to all transactions of a request on contexts whose name starts with the prefix.
+     *
+     * @param requestId ID of the request.
+     * @param prefix    Prefix of the context names (empty for all contexts).
+     * @param consumer  Consumer applied to each transaction while holding the context's lock.
+     */
+    public void withTransactionsWithPrefix(String requestId, String prefix, Consumer<Transaction> consumer) {
+        var requestTransactions = transactions.getIfPresent(requestId);
+        if (requestTransactions == null) {
+            return;
         }
+        requestTransactions.forEach((contextName, transaction) -> {
+            if (contextName.startsWith(prefix)) {
+                synchronized (lockFor(contextName)) {
+                    consumer.accept(transaction);
+                }
+            }
+        });
+    }
+
+    /**
+     * Releases all transactions of a request.
+     *
+     * @param requestId ID of the completed request.
+     */
+    public void deleteTransactions(String requestId) {
+        transactions.invalidate(requestId);
+    }
+
+    private Map<String, Transaction> getRequestTransactions(String requestId) {
+        return transactions.get(requestId, it -> new ConcurrentHashMap<>());
     }
 
-    private String createTransactionKey(String requestId) {
-        return TRANSACTION_KEY_PREFIX + requestId;
+    private Object lockFor(String contextName) {
+        return locks[Math.floorMod(contextName.hashCode(), locks.length)];
     }
 }
@@ -17,6 +17,7 @@ package org.wiremock.extensions.state.internal.api;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
+import java.util.List;
 import java.util.Map;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
@@ -25,6 +26,8 @@ public class RecordStateParameters {
 
     private Map<String, String> state;
     private ListParameters list;
+    private String expireAfter;
+    private String expireAfterAccess;
 
     public ListParameters getList() {
         return list;
@@ -50,10 +53,28 @@ public class RecordStateParameters {
         this.state = state;
     }
 
+    public String getExpireAfter() {
+        return expireAfter;
+    }
+
+    public void setExpireAfter(String expireAfter) {
+        this.expireAfter = expireAfter;
+    }
+
+    public String getExpireAfterAccess() {
+        return expireAfterAccess;
+    }
+
+    public void setExpireAfterAccess(String expireAfterAccess) {
+        this.expireAfterAccess = expireAfterAccess;
+    }
+
     @JsonIgnoreProperties(ignoreUnknown = true)
     public static class ListParameters {
         private Map<String, String> addFirst;
         private Map<String, String> addLast;
+        private String expireAfter;
+        private List<String> indexBy;
 
         public Map<String, String> getAddFirst() {
             return addFirst;
@@ -70,5 +91,21 @@ public class RecordStateParameters {
         public void setAddLast(Map<String, String> addLast) {
             this.addLast = addLast;
         }
+
+        public String getExpireAfter() {
+            return expireAfter;
+        }
+
+        public void setExpireAfter(String expireAfter) {
+            this.expireAfter = expireAfter;
+        }
+
+        public List<String> getIndexBy() {
+            return indexBy;
+        }
+
+        public void setIndexBy(List<String> indexBy) {
+            this.indexBy = indexBy;
+        }
     }
 }
@@ -15,52 +15,150 @@
  */
 package org.wiremock.extensions.state.internal.model;
 
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Optional;
 
+/**
+ * Immutable snapshot of a context.
+ * <p>
+ * Updates create a new version that shares all unchanged parts (property map, list, list entries) with the
+ * previous one. Snapshots can therefore be handed out to readers without copying.
+ */
 public class Context {
 
     private final String contextName;
-    private final Map<String, String> properties = new HashMap<>();
-    private final LinkedList<Map<String, String>> list = new LinkedList<>();
-    private final LinkedList<String> requests = new LinkedList<>();
-    private Long updateCount = 0L;
+    private final Map<String, String> properties;
+    private final long propertiesWeight;
+    private final ContextList list;
+    private final Long updateCount;
+    private final Expiration expiration;
+    private final long created;
+    /**
+     * True if this version only removed expired list entries from the previous one: it does not count as a write for
+     * the expiration of the context.
+     */
+    private final boolean listCleanup;
 
-    public Context(Context other) {
-        this.contextName = other.contextName;
-        this.properties.putAll(other.properties);
-        this.list.addAll(other.list.stream().map(HashMap::new).collect(Collectors.toList()));
-        this.requests.addAll(other.requests);
-        this.updateCount = other.updateCount;
+    public Context(String contextName) {
+        this(contextName, Map.of(), Footprint.of(Map.of()), ContextList.empty(), 0L, null, HybridClock.now(), false);
     }
 
-    public Context(String contextName) {
+    private Context(
+        String contextName,
+        Map<String, String> properties,
+        long propertiesWeight,
+        ContextList list,
+        Long updateCount,
+        Expiration expiration,
+        long created,
+        boolean listCleanup
+    ) {
         this.contextName = contextName;
+        this.properties = properties;
+        this.propertiesWeight = propertiesWeight;
+        this.list = list;
+        this.updateCount = updateCount;
+        this.expiration = expiration;
+        this.created = created;
+        this.listCleanup = listCleanup;
     }
 
     public String getContextName() {
         return contextName;
     }
 
+    /**
+     * @return creation time of the context (see {@link HybridClock}).
+     */
+    public long getCreated() {
+        return created;
+    }
+
     public Long getUpdateCount() {
         return updateCount;
     }
 
-    public Long incUpdateCount() {
-        updateCount = updateCount + 1;
-        return updateCount;
+    /**
+     * @return the expiration of the context - or empty for the store's default.
+     */
+    public Optional<Expiration> getExpiration() {
+        return Optional.ofNullable(expiration);
     }
 
+    /**
+     * @return unmodifiable view of the properties.
+     */
     public Map<String, String> getProperties() {
         return properties;
     }
 
-    public LinkedList<Map<String, String>> getList() {
+    /**
+     * @return the (immutable) list.
+     */
+    public ContextList getList() {
         return list;
     }
 
+    /**
+     * @return the estimated footprint in bytes (see {@link Footprint}). O(1), as the weight of the list is maintained
+     * with each change.
+     */
+    public long getWeight() {
+        return Footprint.OBJECT_OVERHEAD + Footprint.of(contextName) + propertiesWeight + list.getWeight();
+    }
+
+    /**
+     * Creates a new version with the given properties. The map is owned by the new version and must not be modified afterwards.
+     */
+    public Context withProperties(Map<String, String> properties) {
+        return new Context(contextName, Collections.unmodifiableMap(properties), Footprint.of(properties), list, updateCount, expiration, created, false);
+    }
+
+    /**
+     * Creates a new version with the given list. The list entries must not be modified afterwards.
+     */
+    public Context withList(List<Map<String, String>> list) {
+        return new Context(contextName, properties, propertiesWeight, ContextList.copyOf(list), updateCount, expiration, created, false);
+    }
+
+    /**
+     * Creates a new version using the given expiration instead of the store's default.
+     */
+    public Context withExpiration(Expiration expiration) {
+        return new Context(contextName, properties, propertiesWeight, list, updateCount, expiration, created, false);
+    }
+
+    /**
+     * Cheap check whether list entries expired (see {@link ContextList#hasExpiredEntries(long)}).
+     *
+     * @param now Current time (see {@link System#currentTimeMillis()}).
+     */
+    public boolean hasExpiredListEntries(long now) {
+        return list.hasExpiredEntries(now);
+    }
+
+    /**
+     * Creates a new version without the expired list entries (see {@link ContextList#withoutExpiredEntries(long)}).
+     *
+     * @param now Current time (see {@link System#currentTimeMillis()}).
+     */
+    public Context withoutExpiredListEntries(long now) {
+        return new Context(contextName, properties, propertiesWeight, list.withoutExpiredEntries(now), updateCount, expiration, created, true);
+    }
+
+    /**
+     * @return true if this version only removed expired list entries from the previous version.
+     */
+    public boolean isListCleanup() {
+        return listCleanup;
+    }
+
+    public Context withIncrementedUpdateCount() {
+        return new Context(contextName, properties, propertiesWeight, list, updateCount + 1, expiration, created, false);
+    }
+
     @Override
     public String toString() {
         return "Context{" +
@@ -68,6 +166,7 @@ public class Context {
             ", properties=" + properties +
             ", list=" + list +
             ", updateCount=" + updateCount +
+            ", expiration=" + expiration +
             '}';
     }
 }
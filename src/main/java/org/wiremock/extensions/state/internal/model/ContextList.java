@@ -0,0 +1,533 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable list of a context, backed by an array with free space at both ends.
+ * <p>
+ * Reading an index as well as adding and removing entries at either end are O(1): new versions share the array with
+ * the previous version. A version can only write into free slots not used by any other version, so older versions stay
+ * unchanged. If there is no such slot (array full, or the slot was used by a version whose entry got removed again),
+ * the entries are copied into a new array with free space at both ends.
+ * <p>
+ * Entries removed from the middle of the list stay in the array: the version only records their slots as removed.
+ * Once more than an eighth of its range is removed, the entries are copied into a new array.
+ * <p>
+ * The list keeps track of the estimated footprint of its entries (see {@link #getWeight()}), updated with each change.
+ * <p>
+ * Entries can have a deadline, kept in a second array next to the entries. Each version knows a lower bound of the
+ * deadlines of its entries: once it passes, the whole list is checked and the expired entries are removed (see
+ * {@link #withoutExpiredEntries(long)}).
+ * <p>
+ * Optionally, the list maintains hash indexes on entry properties (see {@link #withIndexedProperties(Set)}). An index
+ * maps a property value to the array slots holding it and is shared like the array: as slots are never overwritten, a
+ * version only has to ignore slots outside its range or removed by it.
+ */
+public final class ContextList extends AbstractList<Map<String, String>> implements RandomAccess {
+
+    /**
+     * Deadline of entries that do not expire.
+     */
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+    private static final int MIN_CAPACITY = 8;
+    private static final int[] NONE_REMOVED = new int[0];
+    private static final ContextList EMPTY = new ContextList(new Buffer(0, 0, 0, Set.of(), false), 0, 0, NONE_REMOVED, 0, NO_DEADLINE);
+
+    private final Buffer buffer;
+    private final int start;
+    private final int size;
+    /**
+     * Sorted slots within the range of this version whose entries were removed. Never contains the first or last slot
+     * of the range.
+     */
+    private final int[] removed;
+    private final long weight;
+    /**
+     * No entry expires before this deadline. Removing entries does not update it, so it may be earlier than the
+     * earliest deadline of the remaining entries.
+     */
+    private final long minDeadline;
+
+    private ContextList(Buffer buffer, int start, int size, int[] removed, long weight, long minDeadline) {
+        this.buffer = buffer;
+        this.start = start;
+        this.size = size;
+        this.removed = removed;
+        this.weight = weight;
+        this.minDeadline = minDeadline;
+    }
+
+    public static ContextList empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param entries Entries of the list. The entries must not be modified afterwards.
+     * @return a list with the given entries (not expiring).
+     */
+    public static ContextList copyOf(List<Map<String, String>> entries) {
+        if (entries instanceof ContextList) {
+            return (ContextList) entries;
+        }
+        if (entries.isEmpty()) {
+            return EMPTY;
+        }
+        var capacity = Math.max(MIN_CAPACITY, entries.size() * 2);
+        var start = (capacity - entries.size()) / 2;
+        var buffer = new Buffer(capacity, start, start + entries.size(), Set.of(), false);
+        var slot = start;
+        var weight = 0L;
+        for (var entry : entries) {
+            buffer.put(slot++, entry, NO_DEADLINE);
+            weight += Footprint.ofListEntry(entry);
+        }
+        return new ContextList(buffer, start, entries.size(), NONE_REMOVED, weight, NO_DEADLINE);
+    }
+
+    /**
+     * O(1), or O(log r) if entries were removed from the middle (r being the number of removed entries).
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, String> get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return (Map<String, String>) buffer.elements[slotOf(index)];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the estimated footprint of the entries in bytes (see {@link Footprint}).
+     */
+    public long getWeight() {
+        return weight;
+    }
+
+    public ContextList withAddFirst(Map<String, String> entry) {
+        return withAddFirst(entry, NO_DEADLINE);
+    }
+
+    /**
+     * @param deadline Time after which the entry expires (see {@link System#currentTimeMillis()}).
+     */
+    public ContextList withAddFirst(Map<String, String> entry, long deadline) {
+        if (buffer.supportsDeadline(deadline) && buffer.claimBefore(start)) {
+            buffer.put(start - 1, entry, deadline);
+            return new ContextList(buffer, start - 1, size + 1, removed, weight + Footprint.ofListEntry(entry), Math.min(minDeadline, deadline));
+        }
+        return copy(-1, Long.MIN_VALUE, entry, deadline, null, NO_DEADLINE, buffer.indexes.keySet());
+    }
+
+    public ContextList withAddLast(Map<String, String> entry) {
+        return withAddLast(entry, NO_DEADLINE);
+    }
+
+    /**
+     * @param deadline Time after which the entry expires (see {@link System#currentTimeMillis()}).
+     */
+    public ContextList withAddLast(Map<String, String> entry, long deadline) {
+        if (buffer.supportsDeadline(deadline) && buffer.claimAfter(end())) {
+            buffer.put(end(), entry, deadline);
+            return new ContextList(buffer, start, size + 1, removed, weight + Footprint.ofListEntry(entry), Math.min(minDeadline, deadline));
+        }
+        return copy(-1, Long.MIN_VALUE, null, NO_DEADLINE, entry, deadline, buffer.indexes.keySet());
+    }
+
+    /**
+     * @return the list without its first entry (or this list if empty).
+     */
+    public ContextList withoutFirst() {
+        if (size == 0) {
+            return this;
+        }
+        var newStart = start + 1;
+        var skipped = 0;
+        while (skipped < removed.length && removed[skipped] == newStart) {
+            newStart++;
+            skipped++;
+        }
+        var newRemoved = skipped == 0 ? removed : Arrays.copyOfRange(removed, skipped, removed.length);
+        return new ContextList(buffer, newStart, size - 1, newRemoved, weight - Footprint.ofListEntry(get(0)), minDeadline);
+    }
+
+    /**
+     * @return the list without its last entry (or this list if empty).
+     */
+    public ContextList withoutLast() {
+        if (size == 0) {
+            return this;
+        }
+        var newEnd = end() - 1;
+        var kept = removed.length;
+        while (kept > 0 && removed[kept - 1] == newEnd - 1) {
+            newEnd--;
+            kept--;
+        }
+        var newRemoved = kept == removed.length ? removed : Arrays.copyOf(removed, kept);
+        return new ContextList(buffer, start, size - 1, newRemoved, weight - Footprint.ofListEntry(get(size - 1)), minDeadline);
+    }
+
+    /**
+     * @return the list without the entry at the index. O(1) for the first and last entry. Otherwise, the entry is
+     * marked as removed in O(r) (r being the number of removed entries), compacting the list in O(n) once too many
+     * entries are removed.
+     * @throws IndexOutOfBoundsException if the index is invalid.
+     */
+    public ContextList withoutIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        } else if (index == 0) {
+            return withoutFirst();
+        } else if (index == size - 1) {
+            return withoutLast();
+        } else if (removed.length >= Math.max(MIN_CAPACITY, (end() - start) / 8)) {
+            return copy(index, Long.MIN_VALUE, null, NO_DEADLINE, null, NO_DEADLINE, buffer.indexes.keySet());
+        }
+        var slot = slotOf(index);
+        var position = -Arrays.binarySearch(removed, slot) - 1;
+        var newRemoved = new int[removed.length + 1];
+        System.arraycopy(removed, 0, newRemoved, 0, position);
+        newRemoved[position] = slot;
+        System.arraycopy(removed, position, newRemoved, position + 1, removed.length - position);
+        return new ContextList(buffer, start, size - 1, newRemoved, weight - Footprint.ofListEntry(get(index)), minDeadline);
+    }
+
+    /**
+     * Cheap check whether an entry may have expired. O(1).
+     *
+     * @param now Current time (see {@link System#currentTimeMillis()}).
+     */
+    public boolean hasExpiredEntries(long now) {
+        return size > 0 && minDeadline <= now;
+    }
+
+    /**
+     * Removes all expired entries. O(n) if an entry may have expired (see {@link #hasExpiredEntries(long)}), O(1)
+     * otherwise.
+     *
+     * @param now Current time (see {@link System#currentTimeMillis()}).
+     * @return the list without the expired entries (or this list if nothing expired and the earliest deadline is known).
+     */
+    public ContextList withoutExpiredEntries(long now) {
+        if (!hasExpiredEntries(now)) {
+            return this;
+        }
+        var expired = false;
+        var earliest = NO_DEADLINE;
+        for (int i = 0; i < size; i++) {
+            var deadline = buffer.getDeadline(slotOf(i));
+            expired |= deadline <= now;
+            earliest = Math.min(earliest, deadline);
+        }
+        if (expired) {
+            return copy(-1, now, null, NO_DEADLINE, null, NO_DEADLINE, buffer.indexes.keySet());
+        }
+        return new ContextList(buffer, start, size, removed, weight, earliest);
+    }
+
+    /**
+     * @return a list with the same entries, additionally indexed by the given properties. O(1) if all properties are
+     * already indexed, O(n) otherwise.
+     */
+    public ContextList withIndexedProperties(Set<String> properties) {
+        if (buffer.indexes.keySet().containsAll(properties)) {
+            return this;
+        }
+        var indexedProperties = new HashSet<>(buffer.indexes.keySet());
+        indexedProperties.addAll(properties);
+        return copy(-1, Long.MIN_VALUE, null, NO_DEADLINE, null, NO_DEADLINE, indexedProperties);
+    }
+
+    public boolean isIndexed(String property) {
+        return buffer.indexes.containsKey(property);
+    }
+
+    /**
+     * @return the index of the first entry with the property value, or -1 if there is none. O(log k) (k being the number
+     * of entries with that value) if the property is indexed, O(n) otherwise.
+     */
+    public int indexOf(String property, String value) {
+        var index = buffer.indexes.get(property);
+        if (index == null || value == null) {
+            for (int i = 0; i < size; i++) {
+                if (Objects.equals(get(i).get(property), value)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        var slots = index.get(value);
+        if (slots == null) {
+            return -1;
+        }
+        for (int position = slots.firstAtOrAfter(start); position < slots.to && slots.slots[position] < end(); position++) {
+            var removedBefore = Arrays.binarySearch(removed, slots.slots[position]);
+            if (removedBefore < 0) {
+                return slots.slots[position] - start - (-removedBefore - 1);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return all entries with the property value, in list order. Only visits these entries if the property is indexed.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Map<String, String>> getAllWhere(String property, String value) {
+        var index = buffer.indexes.get(property);
+        var result = new ArrayList<Map<String, String>>();
+        if (index == null || value == null) {
+            for (var entry : this) {
+                if (Objects.equals(entry.get(property), value)) {
+                    result.add(entry);
+                }
+            }
+            return result;
+        }
+        var slots = index.get(value);
+        if (slots == null) {
+            return result;
+        }
+        for (int position = slots.firstAtOrAfter(start); position < slots.to && slots.slots[position] < end(); position++) {
+            if (Arrays.binarySearch(removed, slots.slots[position]) < 0) {
+                result.add((Map<String, String>) buffer.elements[slots.slots[position]]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the end of the range of slots of this version (exclusive).
+     */
+    private int end() {
+        return start + size + removed.length;
+    }
+
+    /**
+     * @return the slot of the entry at the index, skipping removed slots.
+     */
+    private int slotOf(int index) {
+        // the number of entries before the k-th removed slot does not decrease with k: find the removed slots before the entry
+        var low = 0;
+        var high = removed.length;
+        while (low < high) {
+            var middle = (low + high) >>> 1;
+            if (removed[middle] - start - middle <= index) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return start + index + low;
+    }
+
+    /**
+     * Copies the entries into a new array with free space at both ends.
+     *
+     * @param skip              Index of an entry not to copy (-1 for none).
+     * @param expiredAt         Entries with a deadline up to this time are not copied ({@link Long#MIN_VALUE} for none).
+     * @param first             Entry to add at the front (or {@code null}).
+     * @param firstDeadline     Deadline of the entry added at the front.
+     * @param last              Entry to add at the end (or {@code null}).
+     * @param lastDeadline      Deadline of the entry added at the end.
+     * @param indexedProperties Properties to index in the new array.
+     */
+    @SuppressWarnings("unchecked")
+    private ContextList copy(
+        int skip,
+        long expiredAt,
+        Map<String, String> first,
+        long firstDeadline,
+        Map<String, String> last,
+        long lastDeadline,
+        Set<String> indexedProperties
+    ) {
+        var copied = new int[size];
+        var copiedCount = 0;
+        var newWeight = weight;
+        var newMinDeadline = NO_DEADLINE;
+        for (int i = 0; i < size; i++) {
+            var source = slotOf(i);
+            var deadline = buffer.getDeadline(source);
+            if (i == skip || deadline <= expiredAt) {
+                newWeight -= Footprint.ofListEntry((Map<String, String>) buffer.elements[source]);
+            } else {
+                copied[copiedCount++] = source;
+                newMinDeadline = Math.min(newMinDeadline, deadline);
+            }
+        }
+        var newSize = copiedCount + (first != null ? 1 : 0) + (last != null ? 1 : 0);
+        var capacity = Math.max(MIN_CAPACITY, newSize * 2);
+        var newStart = (capacity - newSize) / 2;
+        var withDeadlines = newMinDeadline != NO_DEADLINE
+            || (first != null && firstDeadline != NO_DEADLINE)
+            || (last != null && lastDeadline != NO_DEADLINE);
+        var newBuffer = new Buffer(capacity, newStart, newStart + newSize, indexedProperties, withDeadlines);
+        var slot = newStart;
+        if (first != null) {
+            newBuffer.put(slot++, first, firstDeadline);
+            newWeight += Footprint.ofListEntry(first);
+            newMinDeadline = Math.min(newMinDeadline, firstDeadline);
+        }
+        for (int i = 0; i < copiedCount; i++) {
+            newBuffer.put(slot++, (Map<String, String>) buffer.elements[copied[i]], buffer.getDeadline(copied[i]));
+        }
+        if (last != null) {
+            newBuffer.put(slot, last, lastDeadline);
+            newWeight += Footprint.ofListEntry(last);
+            newMinDeadline = Math.min(newMinDeadline, lastDeadline);
+        }
+        return new ContextList(newBuffer, newStart, newSize, NONE_REMOVED, newWeight, newMinDeadline);
+    }
+
+    /**
+     * Array shared by list versions. Tracks the range of slots used by any version, the deadlines of the slots (if any
+     * entry expires) and indexes the slots by property value.
+     */
+    private static final class Buffer {
+        private final Object[] elements;
+        private final long[] deadlines;
+        private final Map<String, Map<String, Slots>> indexes;
+        private int usedStart;
+        private int usedEnd;
+
+        private Buffer(int capacity, int usedStart, int usedEnd, Set<String> indexedProperties, boolean withDeadlines) {
+            this.elements = new Object[capacity];
+            this.deadlines = withDeadlines ? new long[capacity] : null;
+            this.usedStart = usedStart;
+            this.usedEnd = usedEnd;
+            var indexes = new HashMap<String, Map<String, Slots>>();
+            indexedProperties.forEach(property -> indexes.put(property, new ConcurrentHashMap<>()));
+            this.indexes = Map.copyOf(indexes);
+        }
+
+        boolean supportsDeadline(long deadline) {
+            return deadline == NO_DEADLINE || deadlines != null;
+        }
+
+        long getDeadline(int slot) {
+            return deadlines == null ? NO_DEADLINE : deadlines[slot];
+        }
+
+        /**
+         * Writes a claimed slot and adds it to the indexes. Must be called before the version containing the slot is
+         * published.
+         */
+        void put(int slot, Map<String, String> entry, long deadline) {
+            elements[slot] = entry;
+            if (deadlines != null) {
+                deadlines[slot] = deadline;
+            }
+            indexes.forEach((property, index) -> {
+                var value = entry.get(property);
+                if (value != null) {
+                    index.merge(value, Slots.of(slot), (current, added) -> current.with(slot));
+                }
+            });
+        }
+
+        synchronized boolean claimBefore(int start) {
+            if (start == usedStart && start > 0) {
+                usedStart--;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized boolean claimAfter(int end) {
+            if (end == usedEnd && end < elements.length) {
+                usedEnd++;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Sorted slots of the entries with a property value. As entries are only added before the first or after the last
+     * used slot of the buffer, slots are only prepended or appended: the array has free space at both ends, growing
+     * like the buffer. Instances share the array, each one only reads its own range, which is never overwritten.
+     * Changes are serialized by the index map.
+     */
+    private static final class Slots {
+        private final int[] slots;
+        private final int from;
+        private final int to;
+
+        private Slots(int[] slots, int from, int to) {
+            this.slots = slots;
+            this.from = from;
+            this.to = to;
+        }
+
+        static Slots of(int slot) {
+            var slots = new int[MIN_CAPACITY / 2];
+            slots[1] = slot;
+            return new Slots(slots, 1, 2);
+        }
+
+        /**
+         * @return the slots with the given one added. Amortized O(1).
+         */
+        Slots with(int slot) {
+            if (slot > slots[to - 1]) {
+                if (to < slots.length) {
+                    slots[to] = slot;
+                    return new Slots(slots, from, to + 1);
+                }
+                return grown().with(slot);
+            }
+            if (from > 0) {
+                slots[from - 1] = slot;
+                return new Slots(slots, from - 1, to);
+            }
+            return grown().with(slot);
+        }
+
+        private Slots grown() {
+            var count = to - from;
+            var grown = new int[count * 2 + 2];
+            var newFrom = (grown.length - count) / 2;
+            System.arraycopy(slots, from, grown, newFrom, count);
+            return new Slots(grown, newFrom, newFrom + count);
+        }
+
+        /**
+         * @return the position of the first slot not before the given one ({@link #to} if there is none).
+         */
+        int firstAtOrAfter(int slot) {
+            var position = Arrays.binarySearch(slots, from, to, slot);
+            return position < 0 ? -position - 1 : position;
+        }
+    }
+}
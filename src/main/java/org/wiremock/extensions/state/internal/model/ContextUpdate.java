@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal.model;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Changes to a context recorded by a single serve event. All fields are optional.
+ */
+public final class ContextUpdate {
+
+    private final Map<String, String> properties;
+    private final Map<String, String> addFirst;
+    private final Map<String, String> addLast;
+    private final Duration listEntryExpiration;
+    private final Set<String> indexedListProperties;
+    private final Expiration expiration;
+
+    private ContextUpdate(
+        Map<String, String> properties,
+        Map<String, String> addFirst,
+        Map<String, String> addLast,
+        Duration listEntryExpiration,
+        Set<String> indexedListProperties,
+        Expiration expiration
+    ) {
+        this.properties = properties;
+        this.addFirst = addFirst;
+        this.addLast = addLast;
+        this.listEntryExpiration = listEntryExpiration;
+        this.indexedListProperties = indexedListProperties;
+        this.expiration = expiration;
+    }
+
+    public static ContextUpdate create() {
+        return new ContextUpdate(null, null, null, null, null, null);
+    }
+
+    /**
+     * Properties to set. A value of {@code "null"} removes the property.
+     */
+    public ContextUpdate withProperties(Map<String, String> properties) {
+        return new ContextUpdate(properties, addFirst, addLast, listEntryExpiration, indexedListProperties, expiration);
+    }
+
+    /**
+     * Entry to add to the front of the list. The entry must not be modified afterwards.
+     */
+    public ContextUpdate withAddFirst(Map<String, String> addFirst) {
+        return new ContextUpdate(properties, addFirst, addLast, listEntryExpiration, indexedListProperties, expiration);
+    }
+
+    /**
+     * Entry to add to the end of the list. The entry must not be modified afterwards.
+     */
+    public ContextUpdate withAddLast(Map<String, String> addLast) {
+        return new ContextUpdate(properties, addFirst, addLast, listEntryExpiration, indexedListProperties, expiration);
+    }
+
+    /**
+     * Time after which the added list entries are removed from the list.
+     */
+    public ContextUpdate withListEntryExpiration(Duration listEntryExpiration) {
+        return new ContextUpdate(properties, addFirst, addLast, listEntryExpiration, indexedListProperties, expiration);
+    }
+
+    /**
+     * Properties of list entries to maintain a hash index for.
+     */
+    public ContextUpdate withIndexedListProperties(Set<String> indexedListProperties) {
+        return new ContextUpdate(properties, addFirst, addLast, listEntryExpiration, indexedListProperties, expiration);
+    }
+
+    /**
+     * Expiration of the whole context (if supported by the store).
+     */
+    public ContextUpdate withExpiration(Expiration expiration) {
+        return new ContextUpdate(properties, addFirst, addLast, listEntryExpiration, indexedListProperties, expiration);
+    }
+
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    public Map<String, String> getAddFirst() {
+        return addFirst;
+    }
+
+    public Map<String, String> getAddLast() {
+        return addLast;
+    }
+
+    public Duration getListEntryExpiration() {
+        return listEntryExpiration;
+    }
+
+    public Set<String> getIndexedListProperties() {
+        return indexedListProperties;
+    }
+
+    public Expiration getExpiration() {
+        return expiration;
+    }
+
+    public boolean hasListChanges() {
+        return addFirst != null || addLast != null || indexedListProperties != null;
+    }
+
+    /**
+     * @return true if the update does not change anything.
+     */
+    public boolean isEmpty() {
+        return properties == null && !hasListChanges() && expiration == null;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal.model;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Expiration of a context: either a time after the last write or after the last access (idle timeout).
+ */
+public final class Expiration {
+
+    private final Duration duration;
+    private final boolean afterAccess;
+
+    private Expiration(Duration duration, boolean afterAccess) {
+        this.duration = duration;
+        this.afterAccess = afterAccess;
+    }
+
+    public static Expiration afterWrite(Duration duration) {
+        return new Expiration(duration, false);
+    }
+
+    public static Expiration afterAccess(Duration duration) {
+        return new Expiration(duration, true);
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return true if reads extend the lifetime of the context as well.
+     */
+    public boolean isAfterAccess() {
+        return afterAccess;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        var that = (Expiration) o;
+        return afterAccess == that.afterAccess && duration.equals(that.duration);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(duration, afterAccess);
+    }
+
+    @Override
+    public String toString() {
+        return (afterAccess ? "afterAccess(" : "afterWrite(") + duration + ")";
+    }
+}
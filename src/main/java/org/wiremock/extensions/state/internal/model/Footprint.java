@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal.model;
+
+import java.util.Map;
+
+/**
+ * Estimates the heap footprint of context data in bytes.
+ * <p>
+ * The estimate covers the strings and a fixed overhead per object and map entry. It does not aim for exactness but for
+ * a weight growing with the actual footprint.
+ */
+public final class Footprint {
+
+    public static final long OBJECT_OVERHEAD = 64;
+    public static final long ENTRY_OVERHEAD = 32;
+    private static final long STRING_OVERHEAD = 40;
+
+    private Footprint() {
+    }
+
+    public static long of(Map<String, String> properties) {
+        var weight = OBJECT_OVERHEAD;
+        for (var entry : properties.entrySet()) {
+            weight += ENTRY_OVERHEAD + of(entry.getKey()) + of(entry.getValue());
+        }
+        return weight;
+    }
+
+    public static long of(String value) {
+        return value == null ? 0 : STRING_OVERHEAD + 2L * value.length();
+    }
+
+    /**
+     * @return the footprint of a list entry, including its slot in the list.
+     */
+    static long ofListEntry(Map<String, String> entry) {
+        return ENTRY_OVERHEAD + of(entry);
+    }
+}
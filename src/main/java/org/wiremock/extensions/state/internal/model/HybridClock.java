@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Clock for ordering context creations and wipes: strictly increasing within this JVM, close to the wall clock
+ * (in microseconds) across JVMs sharing a store.
+ */
+public final class HybridClock {
+
+    private static final AtomicLong last = new AtomicLong();
+
+    private HybridClock() {
+    }
+
+    public static long now() {
+        var wallClock = System.currentTimeMillis() * 1000;
+        return last.updateAndGet(previous -> Math.max(previous + 1, wallClock));
+    }
+}
@@ -17,22 +17,17 @@ package org.wiremock.extensions.state.internal.model;
 
 import com.github.tomakehurst.wiremock.common.ListOrSingle;
 import com.github.tomakehurst.wiremock.http.LoggedResponse;
+import org.wiremock.extensions.state.internal.Lazy;
 
 import java.util.Map;
 import java.util.stream.Collectors;
 
 public final class ResponseTemplateModel {
-    private final Map<String, ListOrSingle<String>> headers;
-    private final String body;
+    private final Lazy<Map<String, ListOrSingle<String>>> headers;
+    private final Lazy<String> body;
 
-    private ResponseTemplateModel(Map<String, ListOrSingle<String>> headers, String body) {
-        this.headers = headers;
-        this.body = body;
-    }
-
-    public static ResponseTemplateModel from(LoggedResponse response) {
-
-        var headers = response
+    private ResponseTemplateModel(LoggedResponse response) {
+        this.headers = Lazy.of(() -> response
             .getHeaders()
             .keys()
             .stream()
@@ -43,15 +38,22 @@ public final class ResponseTemplateModel {
                         .getHeader(it)
                         .values()
                 ))
-            );
-        return new ResponseTemplateModel(headers, response.getBodyAsString());
+            ));
+        this.body = Lazy.of(() -> response.getBodyAsString());
+    }
+
+    /**
+     * Creates a model for the response. Headers and body are converted on first access only.
+     */
+    public static ResponseTemplateModel from(LoggedResponse response) {
+        return new ResponseTemplateModel(response);
     }
 
     public Map<String, ListOrSingle<String>> getHeaders() {
-        return this.headers;
+        return this.headers.get();
     }
 
     public String getBody() {
-        return this.body;
+        return this.body.get();
     }
 }
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal.model;
+
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import org.wiremock.extensions.state.internal.Lazy;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Data of a single serve event, shared by all state extension components handling it.
+ */
+public class ServeEventScope {
+
+    private final Lazy<Map<String, Object>> model;
+    private final Map<String, String> contextNames = new ConcurrentHashMap<>();
+
+    public ServeEventScope(ServeEvent serveEvent, Function<ServeEvent, Map<String, Object>> requestModelFactory) {
+        var responseModel = ResponseTemplateModel.from(serveEvent.getResponse());
+        this.model = Lazy.of(() -> {
+            var result = new HashMap<>(requestModelFactory.apply(serveEvent));
+            result.put("response", responseModel);
+            return Collections.unmodifiableMap(result);
+        });
+    }
+
+    /**
+     * @return the template model of the serve event (request and response). It is built on first access only, response
+     * headers and body are only read when accessed.
+     */
+    public Supplier<Map<String, Object>> getModel() {
+        return model;
+    }
+
+    /**
+     * Returns the rendered context name for a template, rendering each distinct template once per serve event.
+     *
+     * @param template Template of the context name.
+     * @param renderer Renders the template.
+     * @return The rendered context name.
+     */
+    public String getContextName(String template, Function<String, String> renderer) {
+        return contextNames.computeIfAbsent(template, renderer);
+    }
+}
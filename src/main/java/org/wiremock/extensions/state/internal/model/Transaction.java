@@ -15,22 +15,63 @@
  */
 package org.wiremock.extensions.state.internal.model;
 
-import java.util.function.Consumer;
+import java.util.Optional;
+import java.util.function.Supplier;
 
 public class Transaction {
     private final String contextName;
     private Boolean writeRecorded = false;
+    private volatile boolean snapshotLoaded = false;
+    private volatile Context snapshot;
 
     public Transaction(String contextName) {
         this.contextName = contextName;
     }
 
-    public void recordWrite(Runnable runnable) {
-        if(!writeRecorded) {
-            runnable.run();
+    /**
+     * Records a write to the context. The first write of a transaction increments the update count.
+     *
+     * @param context The updated context.
+     * @return The context to be stored.
+     */
+    public Context recordWrite(Context context) {
+        var result = context;
+        if (!writeRecorded) {
             writeRecorded = true;
+            result = context.withIncrementedUpdateCount();
         }
+        updateSnapshot(result);
+        return result;
     }
+
+    /**
+     * Records the deletion of the context.
+     */
+    public void recordDeletion() {
+        updateSnapshot(null);
+    }
+
+    /**
+     * Returns the snapshot of the context as seen by this transaction.
+     * <p>
+     * The snapshot is loaded on first access and kept for the lifetime of the transaction, so all reads of a request see
+     * the same version of the context. Writes and deletions of the transaction itself replace the snapshot.
+     *
+     * @param loader Loads the current version of the context.
+     * @return Optional with the snapshot - or empty if the context does not exist.
+     */
+    public Optional<Context> getSnapshot(Supplier<Optional<Context>> loader) {
+        if (!snapshotLoaded) {
+            updateSnapshot(loader.get().orElse(null));
+        }
+        return Optional.ofNullable(snapshot);
+    }
+
+    private void updateSnapshot(Context context) {
+        snapshot = context;
+        snapshotLoaded = true;
+    }
+
     public String getContextName() {
         return contextName;
     }
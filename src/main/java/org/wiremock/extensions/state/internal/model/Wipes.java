@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.internal.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pending wipes of contexts: contexts created before the wipe of their namespace are considered deleted, even if
+ * they are still in the store. This allows deleting any number of contexts at once, their removal from the store
+ * happens later.
+ */
+public final class Wipes {
+
+    public static final Wipes NONE = new Wipes(Map.of());
+
+    /**
+     * Time of the last wipe (see {@link HybridClock}) by namespace (prefix of the context names, empty for all).
+     */
+    private final Map<String, Long> namespaces;
+
+    private Wipes(Map<String, Long> namespaces) {
+        this.namespaces = namespaces;
+    }
+
+    /**
+     * @param namespace Prefix of the context names to wipe (empty for all contexts).
+     * @param time      Time of the wipe (see {@link HybridClock}).
+     */
+    public Wipes withWipe(String namespace, long time) {
+        var result = new HashMap<String, Long>();
+        if (!namespace.isEmpty()) {
+            result.putAll(namespaces);
+        }
+        result.merge(namespace, time, Math::max);
+        return new Wipes(Map.copyOf(result));
+    }
+
+    /**
+     * Removes a wipe once all contexts affected by it have been removed from the store.
+     */
+    public Wipes withoutWipe(String namespace, long time) {
+        if (!Long.valueOf(time).equals(namespaces.get(namespace))) {
+            return this;
+        }
+        var result = new HashMap<>(namespaces);
+        result.remove(namespace);
+        return result.isEmpty() ? NONE : new Wipes(Map.copyOf(result));
+    }
+
+    public boolean isEmpty() {
+        return namespaces.isEmpty();
+    }
+
+    /**
+     * @return true if the context was created before the last wipe of its namespace.
+     */
+    public boolean isWiped(Context context) {
+        for (var wipe : namespaces.entrySet()) {
+            if (context.getCreated() < wipe.getValue() && context.getContextName().startsWith(wipe.getKey())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state;
+
+import com.github.tomakehurst.wiremock.core.ConfigurationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.wiremock.extensions.state.StandaloneStateExtension.EXPIRATION;
+import static org.wiremock.extensions.state.StandaloneStateExtension.MAXIMUM_WEIGHT;
+
+class StandaloneStateExtensionTest {
+
+    private static Function<String, String> configuration(String key, String value) {
+        return Map.of(key, value)::get;
+    }
+
+    @Test
+    void test_validNumbers_ok() {
+        assertThat(StandaloneStateExtension.getNumber(configuration(EXPIRATION, " 42 "), EXPIRATION, Integer::parseInt)).hasValue(42);
+        assertThat(StandaloneStateExtension.getNumber(configuration(MAXIMUM_WEIGHT, "0"), MAXIMUM_WEIGHT, Long::parseLong)).hasValue(0L);
+        new StandaloneStateExtension(Map.of(EXPIRATION, "42", MAXIMUM_WEIGHT, "1024")::get);
+    }
+
+    @Test
+    void test_missingOrBlankNumbers_default() {
+        assertThat(StandaloneStateExtension.getNumber(name -> null, EXPIRATION, Integer::parseInt)).isEmpty();
+        assertThat(StandaloneStateExtension.getNumber(configuration(EXPIRATION, " "), EXPIRATION, Integer::parseInt)).isEmpty();
+        new StandaloneStateExtension(Map.of(EXPIRATION, "", MAXIMUM_WEIGHT, " ")::get);
+    }
+
+    @Test
+    void test_nonNumericValue_fails() {
+        assertThatThrownBy(() -> new StandaloneStateExtension(configuration(EXPIRATION, "ten")))
+            .isInstanceOf(ConfigurationException.class)
+            .hasMessageContaining(EXPIRATION)
+            .hasMessageContaining("ten");
+        assertThatThrownBy(() -> new StandaloneStateExtension(configuration(MAXIMUM_WEIGHT, "1.5")))
+            .isInstanceOf(ConfigurationException.class)
+            .hasMessageContaining(MAXIMUM_WEIGHT);
+    }
+
+    @Test
+    void test_negativeValue_fails() {
+        assertThatThrownBy(() -> new StandaloneStateExtension(configuration(EXPIRATION, "-1")))
+            .isInstanceOf(ConfigurationException.class)
+            .hasMessageContaining(EXPIRATION)
+            .hasMessageContaining("-1");
+        assertThatThrownBy(() -> new StandaloneStateExtension(configuration(MAXIMUM_WEIGHT, "-1024")))
+            .isInstanceOf(ConfigurationException.class)
+            .hasMessageContaining(MAXIMUM_WEIGHT);
+    }
+}
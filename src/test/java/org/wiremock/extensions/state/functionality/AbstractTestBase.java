@@ -42,15 +42,16 @@ import static org.junit.jupiter.api.parallel.ExecutionMode.SAME_THREAD;
 @Execution(SAME_THREAD)
 public class AbstractTestBase {
     protected static final ObjectMapper mapper = new ObjectMapper();
-    protected static final CaffeineStore store = new CaffeineStore();
-    protected static final TransactionManager transactionManager = new TransactionManager(store);
-    protected static final ContextManager contextManager = new ContextManager(store, transactionManager);
+    protected static final TestClock clock = new TestClock();
+    protected static final CaffeineStore store = new CaffeineStore(0, 0, false, clock);
+    protected static final TransactionManager transactionManager = new TransactionManager();
+    protected static final ContextManager contextManager = new ContextManager(store, transactionManager, clock);
 
     @RegisterExtension
     public static WireMockExtension wm = WireMockExtension.newInstance()
         .options(
             wireMockConfig().dynamicPort().dynamicHttpsPort().templatingEnabled(true).globalTemplating(true)
-                .extensions(new StateExtension(store))
+                .extensions(new StateExtension(store, clock))
                 .notifier(new ConsoleNotifier(true))
         )
         .build();
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.functionality;
+
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.CaffeineStore;
+import org.wiremock.extensions.state.internal.ContextExpiry;
+import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.ContextWeigher;
+import org.wiremock.extensions.state.internal.TransactionManager;
+import org.wiremock.extensions.state.internal.model.ContextUpdate;
+import org.wiremock.extensions.state.internal.model.Expiration;
+import org.wiremock.extensions.state.internal.model.Wipes;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class CaffeineStoreTest {
+
+    @Test
+    void test_maximumWeight_evictsContexts() {
+        var store = new CaffeineStore(0, 100_000);
+        var contextManager = new ContextManager(store, new TransactionManager());
+
+        IntStream.range(0, 1000).forEach(i -> contextManager.createOrUpdateContextState(
+            UUID.randomUUID().toString(),
+            "context-" + i,
+            Map.of("value", "x".repeat(100))
+        ));
+
+        await()
+            .pollInterval(Duration.ofMillis(10))
+            .atMost(Duration.ofSeconds(5))
+            .untilAsserted(() -> assertThat(store.getAllKeys().count()).isBetween(1L, 500L));
+    }
+
+    @Test
+    void test_noMaximumWeight_keepsContexts() {
+        var store = new CaffeineStore();
+        var contextManager = new ContextManager(store, new TransactionManager());
+
+        IntStream.range(0, 1000).forEach(i -> contextManager.createOrUpdateContextState(
+            UUID.randomUUID().toString(),
+            "context-" + i,
+            Map.of("value", "x".repeat(100))
+        ));
+
+        assertThat(store.getAllKeys().count()).isEqualTo(1000L);
+    }
+
+    @Test
+    void test_listEntryExpiration_doesNotExtendContextExpiration() {
+        var clock = new TestClock();
+        var store = new CaffeineStore(2, 0, false, clock);
+        var contextManager = new ContextManager(store, new TransactionManager(), clock);
+        contextManager.createOrUpdateContext(
+            UUID.randomUUID().toString(),
+            "context",
+            ContextUpdate.create().withAddLast(Map.of("value", "x")).withListEntryExpiration(Duration.ofMillis(100))
+        );
+
+        clock.advance(Duration.ofMillis(1500));
+        assertThat(contextManager.getContextCopy("context"))
+            .hasValueSatisfying(it -> assertThat(it.getList()).isEmpty());
+
+        clock.advance(Duration.ofMillis(500));
+        assertThat(contextManager.getContextCopy("context")).isEmpty();
+    }
+
+    @Test
+    void test_wipesAreNotEvicted() {
+        var wipes = Wipes.NONE.withWipe("", 1);
+        var expiry = new ContextExpiry(Expiration.afterWrite(Duration.ofSeconds(1)));
+
+        assertThat(new ContextWeigher().weigh("contextWipes", wipes)).isZero();
+        assertThat(expiry.expireAfterCreate("contextWipes", wipes, 0)).isEqualTo(Long.MAX_VALUE);
+        assertThat(expiry.expireAfterUpdate("contextWipes", wipes, 0, 100)).isEqualTo(Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.functionality;
+
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.internal.model.ContextList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ContextListTest {
+
+    private static Map<String, String> entry(int value) {
+        return Map.of("value", String.valueOf(value));
+    }
+
+    @Test
+    void test_addFirstAndLast_ok() {
+        var list = ContextList.empty();
+        for (int i = 0; i < 100; i++) {
+            list = list.withAddLast(entry(i)).withAddFirst(entry(-i - 1));
+        }
+
+        assertThat(list).hasSize(200);
+        assertThat(list.get(0)).isEqualTo(entry(-100));
+        assertThat(list.get(99)).isEqualTo(entry(-1));
+        assertThat(list.get(100)).isEqualTo(entry(0));
+        assertThat(list.get(199)).isEqualTo(entry(99));
+    }
+
+    @Test
+    void test_previousVersionsUnchanged_ok() {
+        var base = ContextList.copyOf(List.of(entry(1), entry(2)));
+        var withThree = base.withAddLast(entry(3));
+        var withoutLast = withThree.withoutLast();
+        var withFour = withoutLast.withAddLast(entry(4));
+        var withZero = base.withoutFirst().withAddFirst(entry(0));
+
+        assertThat(base).containsExactly(entry(1), entry(2));
+        assertThat(withThree).containsExactly(entry(1), entry(2), entry(3));
+        assertThat(withoutLast).containsExactly(entry(1), entry(2));
+        assertThat(withFour).containsExactly(entry(1), entry(2), entry(4));
+        assertThat(withZero).containsExactly(entry(0), entry(2));
+    }
+
+    @Test
+    void test_queue_ok() {
+        var list = ContextList.empty();
+        for (int i = 0; i < 1000; i++) {
+            list = list.withAddLast(entry(i));
+            if (i >= 10) {
+                list = list.withoutFirst();
+            }
+        }
+
+        assertThat(list).hasSize(10);
+        assertThat(list.get(0)).isEqualTo(entry(990));
+        assertThat(list.get(9)).isEqualTo(entry(999));
+    }
+
+    @Test
+    void test_withoutIndex_ok() {
+        var list = ContextList.copyOf(List.of(entry(1), entry(2), entry(3)));
+
+        assertThat(list.withoutIndex(1)).containsExactly(entry(1), entry(3));
+        assertThat(list.withoutIndex(0)).containsExactly(entry(2), entry(3));
+        assertThat(list.withoutIndex(2)).containsExactly(entry(1), entry(2));
+        assertThat(list).containsExactly(entry(1), entry(2), entry(3));
+        assertThatThrownBy(() -> list.withoutIndex(3)).isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> list.get(-1)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    void test_withoutIndexRepeatedly_ok() {
+        var entries = new ArrayList<Map<String, String>>();
+        var list = ContextList.empty().withIndexedProperties(Set.of("value"));
+        for (int i = 0; i < 200; i++) {
+            entries.add(entry(i));
+            list = list.withAddLast(entry(i));
+        }
+        var versions = new ArrayList<ContextList>();
+        var expectedVersions = new ArrayList<List<Map<String, String>>>();
+        for (int i = 0; i < 150; i++) {
+            var index = (i * 7) % (entries.size() - 2) + 1;
+            entries.remove(index);
+            list = list.withoutIndex(index);
+            versions.add(list);
+            expectedVersions.add(List.copyOf(entries));
+        }
+        list = list.withoutFirst().withoutLast().withAddFirst(entry(-1)).withAddLast(entry(200));
+        entries.remove(0);
+        entries.remove(entries.size() - 1);
+        entries.add(0, entry(-1));
+        entries.add(entry(200));
+
+        assertThat(list).containsExactlyElementsOf(entries);
+        assertThat(list.getWeight()).isEqualTo(ContextList.copyOf(entries).getWeight());
+        for (int i = 0; i < versions.size(); i++) {
+            assertThat(versions.get(i)).containsExactlyElementsOf(expectedVersions.get(i));
+        }
+        for (int i = 0; i < entries.size(); i++) {
+            var value = entries.get(i).get("value");
+            assertThat(list.indexOf("value", value)).isEqualTo(i);
+            assertThat(list.getAllWhere("value", value)).containsExactly(entries.get(i));
+        }
+        assertThat(list.indexOf("value", "100")).isEqualTo(entries.indexOf(entry(100)));
+    }
+
+    @Test
+    void test_indexedLookup_ok() {
+        var list = ContextList.empty().withIndexedProperties(Set.of("value"));
+        for (int i = 0; i < 100; i++) {
+            list = list.withAddLast(entry(i % 10)).withAddFirst(entry(-i));
+        }
+
+        assertThat(list.isIndexed("value")).isTrue();
+        assertThat(list.indexOf("value", "5")).isEqualTo(105);
+        assertThat(list.indexOf("value", "-5")).isEqualTo(94);
+        assertThat(list.indexOf("value", "unknown")).isEqualTo(-1);
+        assertThat(list.getAllWhere("value", "5")).hasSize(10).containsOnly(entry(5));
+    }
+
+    @Test
+    void test_indexedLookupSingleValue_ok() {
+        var base = ContextList.empty().withIndexedProperties(Set.of("value"));
+        var list = base;
+        for (int i = 0; i < 1000; i++) {
+            list = list.withAddLast(Map.of("value", "same", "id", "last" + i)).withAddFirst(Map.of("value", "same", "id", "first" + i));
+        }
+        var older = list.withoutFirst().withoutLast();
+
+        assertThat(list.getAllWhere("value", "same")).hasSize(2000).containsExactlyElementsOf(list);
+        assertThat(list.indexOf("value", "same")).isEqualTo(0);
+        assertThat(older.getAllWhere("value", "same")).containsExactlyElementsOf(older);
+        assertThat(base.getAllWhere("value", "same")).isEmpty();
+    }
+
+    @Test
+    void test_indexedLookupIgnoresOtherVersions_ok() {
+        var base = ContextList.copyOf(List.of(entry(1), entry(2))).withIndexedProperties(Set.of("value"));
+        var withThree = base.withAddLast(entry(3));
+        var withoutFirst = withThree.withoutFirst();
+        var withoutMiddle = withThree.withoutIndex(1);
+
+        assertThat(base.indexOf("value", "3")).isEqualTo(-1);
+        assertThat(withThree.indexOf("value", "3")).isEqualTo(2);
+        assertThat(withoutFirst.indexOf("value", "1")).isEqualTo(-1);
+        assertThat(withoutFirst.indexOf("value", "3")).isEqualTo(1);
+        assertThat(withoutMiddle.isIndexed("value")).isTrue();
+        assertThat(withoutMiddle.indexOf("value", "2")).isEqualTo(-1);
+        assertThat(withoutMiddle.getAllWhere("value", "3")).containsExactly(entry(3));
+    }
+
+    @Test
+    void test_unindexedLookup_ok() {
+        var list = ContextList.copyOf(List.of(entry(1), entry(2), entry(1)));
+
+        assertThat(list.isIndexed("value")).isFalse();
+        assertThat(list.indexOf("value", "1")).isEqualTo(0);
+        assertThat(list.getAllWhere("value", "1")).hasSize(2);
+        assertThat(list.indexOf("other", null)).isEqualTo(0);
+    }
+
+    @Test
+    void test_expiredEntriesRemoved_ok() {
+        var list = ContextList.empty()
+            .withAddLast(entry(1), 100)
+            .withAddLast(entry(2), 300)
+            .withAddLast(entry(3), 100)
+            .withAddLast(entry(4), 200);
+
+        assertThat(list.hasExpiredEntries(99)).isFalse();
+        assertThat(list.withoutExpiredEntries(99)).isSameAs(list);
+        assertThat(list.withoutExpiredEntries(100)).containsExactly(entry(2), entry(4));
+        assertThat(list.withoutExpiredEntries(200)).containsExactly(entry(2));
+        assertThat(list.withoutExpiredEntries(300)).isEmpty();
+    }
+
+    @Test
+    void test_expiredEntryInTheMiddle_removed() {
+        var list = ContextList.empty()
+            .withIndexedProperties(Set.of("value"))
+            .withAddLast(entry(1))
+            .withAddLast(entry(2), 100)
+            .withAddLast(entry(3));
+
+        var result = list.withoutExpiredEntries(100);
+
+        assertThat(list.hasExpiredEntries(100)).isTrue();
+        assertThat(result).containsExactly(entry(1), entry(3));
+        assertThat(result.hasExpiredEntries(Long.MAX_VALUE - 1)).isFalse();
+        assertThat(result.indexOf("value", "2")).isEqualTo(-1);
+        assertThat(result.indexOf("value", "3")).isEqualTo(1);
+        assertThat(result.getWeight()).isEqualTo(ContextList.copyOf(List.of(entry(1), entry(3))).getWeight());
+    }
+
+    @Test
+    void test_removedEarliestEntry_recheckedOnce() {
+        var list = ContextList.empty()
+            .withAddLast(entry(1), 100)
+            .withAddLast(entry(2), 200)
+            .withoutFirst();
+
+        assertThat(list.hasExpiredEntries(100)).isTrue();
+        var checked = list.withoutExpiredEntries(100);
+        assertThat(checked).containsExactly(entry(2));
+        assertThat(checked.hasExpiredEntries(100)).isFalse();
+        assertThat(checked.withoutExpiredEntries(100)).isSameAs(checked);
+    }
+
+    @Test
+    void test_equalEntriesExpireIndependently_ok() {
+        var list = ContextList.empty()
+            .withAddLast(Map.of())
+            .withAddLast(Map.of(), 100);
+
+        assertThat(list.withoutExpiredEntries(100)).hasSize(1);
+    }
+
+    @Test
+    void test_deadlinesSurviveCopies_ok() {
+        var list = ContextList.copyOf(List.of(entry(1), entry(2)))
+            .withAddFirst(entry(0), 100)
+            .withIndexedProperties(Set.of("value"))
+            .withoutIndex(1);
+
+        assertThat(list).containsExactly(entry(0), entry(2));
+        assertThat(list.withoutExpiredEntries(100)).containsExactly(entry(2));
+    }
+
+    @Test
+    void test_weightMaintained_ok() {
+        var list = ContextList.empty().withAddLast(entry(1)).withAddFirst(entry(2), 100).withAddLast(entry(3));
+        var changed = list.withoutIndex(1).withAddLast(entry(4)).withoutFirst().withIndexedProperties(Set.of("value"));
+
+        assertThat(list.getWeight()).isEqualTo(ContextList.copyOf(List.of(entry(2), entry(1), entry(3))).getWeight());
+        assertThat(changed.getWeight()).isEqualTo(ContextList.copyOf(List.of(entry(3), entry(4))).getWeight());
+        assertThat(list.withoutExpiredEntries(100).getWeight()).isEqualTo(list.withoutFirst().getWeight());
+        assertThat(changed.withoutFirst().withoutLast().getWeight()).isZero();
+    }
+}
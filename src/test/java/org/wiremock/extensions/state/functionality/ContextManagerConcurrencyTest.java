@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.functionality;
+
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.internal.model.ContextUpdate;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Contention test for context writes: parallel writers must neither lose updates nor block each other when
+ * working on independent contexts.
+ */
+class ContextManagerConcurrencyTest extends AbstractTestBase {
+
+    private static final int WRITES_PER_THREAD = 500;
+
+    @Test
+    void test_independentContexts_ok() throws Exception {
+        for (int threads : new int[]{1, 2, 4, 8}) {
+            writeIndependentContexts(threads);
+        }
+    }
+
+    private void writeIndependentContexts(int threads) throws Exception {
+        var prefix = UUID.randomUUID().toString();
+
+        runInParallel(threads, thread -> {
+            var contextName = prefix + "-" + thread;
+            for (int i = 0; i < WRITES_PER_THREAD; i++) {
+                contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), contextName, Map.of("value", String.valueOf(i)));
+            }
+        });
+
+        IntStream.range(0, threads).forEach(thread -> {
+            var contextName = prefix + "-" + thread;
+            assertThat(contextManager.numUpdates(contextName)).isEqualTo(WRITES_PER_THREAD);
+            assertThat(contextManager.getContextCopy(contextName))
+                .hasValueSatisfying(it -> assertThat(it.getProperties()).containsEntry("value", String.valueOf(WRITES_PER_THREAD - 1)));
+        });
+    }
+
+    @Test
+    void test_sharedContext_noLostUpdates() throws Exception {
+        var threads = 8;
+        var contextName = UUID.randomUUID().toString();
+
+        runInParallel(threads, thread -> {
+            for (int i = 0; i < WRITES_PER_THREAD; i++) {
+                contextManager.createOrUpdateContextList(UUID.randomUUID().toString(), contextName, list -> list.withAddLast(Map.of("thread", String.valueOf(thread))));
+            }
+        });
+
+        assertThat(contextManager.numUpdates(contextName)).isEqualTo((long) threads * WRITES_PER_THREAD);
+        assertThat(contextManager.getContextCopy(contextName))
+            .hasValueSatisfying(it -> assertThat(it.getList()).hasSize(threads * WRITES_PER_THREAD));
+    }
+
+    @Test
+    void test_combinedUpdate_readersNeverSeePartialUpdates() throws Exception {
+        var contextName = UUID.randomUUID().toString();
+        var inconsistentReads = new AtomicInteger();
+
+        runInParallel(2, thread -> {
+            for (int i = 0; i < WRITES_PER_THREAD; i++) {
+                if (thread == 0) {
+                    var entry = Map.of("index", String.valueOf(i));
+                    contextManager.createOrUpdateContext(UUID.randomUUID().toString(), contextName, ContextUpdate.create().withProperties(entry).withAddLast(entry));
+                } else {
+                    contextManager.getContextCopy(contextName)
+                        .filter(it -> !String.valueOf(it.getList().size() - 1).equals(it.getProperties().get("index")))
+                        .ifPresent(it -> inconsistentReads.incrementAndGet());
+                }
+            }
+        });
+
+        assertThat(inconsistentReads).hasValue(0);
+        assertThat(contextManager.numUpdates(contextName)).isEqualTo(WRITES_PER_THREAD);
+    }
+
+    /**
+     * Plain timed loop comparing writes to independent contexts with writes to a single shared context (all writers
+     * serialized, as with a global lock). Only reports the numbers, as they depend on the machine.
+     */
+    @Test
+    void test_throughput_report() throws Exception {
+        var writes = WRITES_PER_THREAD * 10;
+        measureWritesPerSecond(1, writes, thread -> UUID.randomUUID().toString());
+        for (int threads : new int[]{1, 2, 4, 8}) {
+            var prefix = UUID.randomUUID().toString();
+            var independent = measureWritesPerSecond(threads, writes, thread -> prefix + "-" + thread);
+            var shared = measureWritesPerSecond(threads, writes, thread -> prefix + "-shared");
+            System.out.printf("%d threads: independent contexts %,d writes/s, shared context %,d writes/s%n", threads, independent, shared);
+            assertThat(contextManager.numUpdates(prefix + "-shared")).isEqualTo((long) threads * writes);
+        }
+    }
+
+    private long measureWritesPerSecond(int threads, int writes, IntFunction<String> contextName) throws Exception {
+        var start = System.nanoTime();
+        runInParallel(threads, thread -> {
+            for (int i = 0; i < writes; i++) {
+                contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), contextName.apply(thread), Map.of("value", String.valueOf(i)));
+            }
+        });
+        return TimeUnit.SECONDS.toNanos((long) threads * writes) / Math.max(1, System.nanoTime() - start);
+    }
+
+    private void runInParallel(int threads, ThreadAction action) throws Exception {
+        var executor = Executors.newFixedThreadPool(threads);
+        try {
+            var tasks = new ArrayList<Callable<Void>>();
+            IntStream.range(0, threads).forEach(thread -> tasks.add(() -> {
+                action.run(thread);
+                return null;
+            }));
+            for (var future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThreadAction {
+        void run(int thread);
+    }
+}
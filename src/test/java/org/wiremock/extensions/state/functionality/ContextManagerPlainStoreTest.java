@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.functionality;
+
+import com.github.tomakehurst.wiremock.store.Store;
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.TransactionManager;
+import org.wiremock.extensions.state.internal.model.Context;
+import org.wiremock.extensions.state.internal.model.ContextUpdate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Stores without atomic computation fall back to updates under the context's lock and behave the same.
+ */
+class ContextManagerPlainStoreTest {
+
+    private final ContextManager contextManager = new ContextManager(new MapStore(), new TransactionManager());
+
+    @Test
+    void test_updates_ok() {
+        var contextName = UUID.randomUUID().toString();
+
+        contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), contextName, Map.of("key", "one", "other", "value"));
+        contextManager.createOrUpdateContext(
+            UUID.randomUUID().toString(),
+            contextName,
+            ContextUpdate.create().withProperties(Map.of("key", "two", "other", "null")).withAddLast(Map.of("entry", "1"))
+        );
+
+        assertThat(contextManager.numUpdates(contextName)).isEqualTo(2);
+        assertThat(contextManager.getContextCopy(contextName)).hasValueSatisfying(it -> {
+            assertThat(it.getProperties()).isEqualTo(Map.of("key", "two"));
+            assertThat(it.getList()).containsExactly(Map.of("entry", "1"));
+        });
+
+        contextManager.deleteContext(UUID.randomUUID().toString(), contextName);
+
+        assertThat(contextManager.getContextCopy(contextName)).isEmpty();
+    }
+
+    @Test
+    void test_sharedContext_noLostUpdates() throws Exception {
+        var contextName = UUID.randomUUID().toString();
+        var threads = 4;
+        var writes = 250;
+        var executor = Executors.newFixedThreadPool(threads);
+        try {
+            var tasks = new ArrayList<Callable<Void>>();
+            for (int thread = 0; thread < threads; thread++) {
+                tasks.add(() -> {
+                    for (int i = 0; i < writes; i++) {
+                        contextManager.createOrUpdateContextList(UUID.randomUUID().toString(), contextName, list -> list.withAddLast(Map.of()));
+                    }
+                    return null;
+                });
+            }
+            for (var future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(contextManager.numUpdates(contextName)).isEqualTo(threads * writes);
+        assertThat(contextManager.getContextCopy(contextName).map(Context::getList))
+            .hasValueSatisfying(it -> assertThat(it).hasSize(threads * writes));
+    }
+
+    @Test
+    void test_deleteContexts_ignoresUnknownAndDuplicateNames() {
+        contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), "one", Map.of("key", "value"));
+        contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), "two", Map.of("key", "value"));
+
+        contextManager.deleteContexts(UUID.randomUUID().toString(), List.of("one", "unknown", "one"));
+
+        assertThat(contextManager.getContextCopy("one")).isEmpty();
+        assertThat(contextManager.getContextCopy("unknown")).isEmpty();
+        assertThat(contextManager.getContextCopy("two")).isPresent();
+        assertThat(contextManager.numUpdates("two")).isEqualTo(1);
+    }
+
+    @Test
+    void test_deleteContextsMatching_scansAllKeys() {
+        for (var contextName : List.of("prefix-1", "prefix-2", "other-2", "prefix")) {
+            contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), contextName, Map.of("key", "value"));
+        }
+
+        contextManager.deleteContextsMatching(UUID.randomUUID().toString(), Pattern.compile("prefix-\\d"));
+
+        assertThat(contextManager.getContextCopy("prefix-1")).isEmpty();
+        assertThat(contextManager.getContextCopy("prefix-2")).isEmpty();
+        assertThat(contextManager.getContextCopy("prefix")).isPresent();
+        assertThat(contextManager.getContextCopy("other-2")).isPresent();
+
+        contextManager.deleteContextsMatching(UUID.randomUUID().toString(), Pattern.compile(".*-2"));
+
+        assertThat(contextManager.getContextCopy("other-2")).isEmpty();
+        assertThat(contextManager.getContextCopy("prefix")).isPresent();
+    }
+
+    /**
+     * Store supporting the basic operations only.
+     */
+    private static class MapStore implements Store<String, Object> {
+        private final Map<String, Object> entries = new ConcurrentHashMap<>();
+
+        @Override
+        public Stream<String> getAllKeys() {
+            return entries.keySet().stream();
+        }
+
+        @Override
+        public Optional<Object> get(String key) {
+            return Optional.ofNullable(entries.get(key));
+        }
+
+        @Override
+        public void put(String key, Object content) {
+            entries.put(key, content);
+        }
+
+        @Override
+        public void remove(String key) {
+            entries.remove(key);
+        }
+
+        @Override
+        public void clear() {
+            entries.clear();
+        }
+    }
+}
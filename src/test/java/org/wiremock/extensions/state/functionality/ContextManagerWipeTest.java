@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.functionality;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class ContextManagerWipeTest extends AbstractTestBase {
+
+    @Test
+    void test_namespaceWipe_hidesAndRemovesNamespaceOnly() {
+        var namespace = UUID.randomUUID() + "-";
+        var contextOne = namespace + "one";
+        var contextTwo = namespace + "two";
+        var otherContext = UUID.randomUUID().toString();
+        contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), contextOne, Map.of("key", "value"));
+        contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), contextTwo, Map.of("key", "value"));
+        contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), otherContext, Map.of("key", "value"));
+
+        contextManager.deleteAllContexts(UUID.randomUUID().toString(), namespace);
+
+        assertThat(contextManager.getContextCopy(contextOne)).isEmpty();
+        assertThat(contextManager.getContextCopy(contextTwo)).isEmpty();
+        assertThat(contextManager.numUpdates(contextOne)).isEqualTo(0);
+        assertThat(contextManager.getContextCopy(otherContext)).isPresent();
+        await()
+            .pollInterval(Duration.ofMillis(10))
+            .atMost(Duration.ofSeconds(5))
+            .untilAsserted(() -> assertThat(store.get(contextManager.createContextKey(contextTwo))).isEmpty());
+        assertThat(store.get(contextManager.createContextKey(otherContext))).isPresent();
+    }
+
+    @Test
+    void test_wipe_updatesSnapshotsOfRequest() {
+        var requestId = UUID.randomUUID().toString();
+        var namespace = UUID.randomUUID() + "-";
+        var contextName = namespace + "one";
+        var otherContext = UUID.randomUUID().toString();
+        contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), contextName, Map.of("key", "value"));
+        contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), otherContext, Map.of("key", "value"));
+        assertThat(contextManager.hasContext(requestId, contextName)).isTrue();
+        assertThat(contextManager.hasContext(requestId, otherContext)).isTrue();
+
+        contextManager.deleteAllContexts(requestId, namespace);
+
+        assertThat(contextManager.hasContext(requestId, contextName)).isFalse();
+        assertThat(contextManager.hasContext(requestId, otherContext)).isTrue();
+        transactionManager.deleteTransactions(requestId);
+    }
+
+    @Test
+    void test_contextCreatedAfterWipe_isVisible() {
+        var contextName = UUID.randomUUID().toString();
+        contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), contextName, Map.of("key", "old"));
+
+        contextManager.deleteAllContexts(UUID.randomUUID().toString());
+        contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), contextName, Map.of("other", "new"));
+
+        assertThat(contextManager.numUpdates(contextName)).isEqualTo(1);
+        assertThat(contextManager.getContextCopy(contextName))
+            .hasValueSatisfying(it -> assertThat(it.getProperties()).isEqualTo(Map.of("other", "new")));
+    }
+}
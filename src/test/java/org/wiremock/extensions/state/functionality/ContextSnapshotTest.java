@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.functionality;
+
+import com.github.jknack.handlebars.Helper;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.common.ConsoleNotifier;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.TemplateHelperProviderExtension;
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import io.restassured.http.ContentType;
+import org.apache.http.HttpStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.parallel.Execution;
+import org.wiremock.extensions.state.CaffeineStore;
+import org.wiremock.extensions.state.StateExtension;
+import org.wiremock.extensions.state.internal.ContextManager;
+import org.wiremock.extensions.state.internal.TransactionManager;
+import org.wiremock.extensions.state.internal.model.Context;
+import org.wiremock.extensions.state.internal.model.ContextList;
+import org.wiremock.extensions.state.internal.model.ContextUpdate;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.parallel.ExecutionMode.SAME_THREAD;
+
+/**
+ * All reads of a context within a request see the same version, apart from the request's own writes.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Execution(SAME_THREAD)
+class ContextSnapshotTest {
+
+    private static final CaffeineStore store = new CaffeineStore();
+    private static final ContextManager contextManager = new ContextManager(store, new TransactionManager());
+    private static final String contextName = "aContextName";
+
+    @RegisterExtension
+    public static WireMockExtension wm = WireMockExtension.newInstance()
+        .options(
+            wireMockConfig().dynamicPort().templatingEnabled(true).globalTemplating(true)
+                .extensions(new StateExtension(store))
+                .extensions(new ConcurrentWriteHelperProvider())
+                .notifier(new ConsoleNotifier(true))
+        )
+        .build();
+
+    @BeforeEach
+    void setup() {
+        wm.resetAll();
+        contextManager.deleteAllContexts(UUID.randomUUID().toString());
+        contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), contextName, Map.of("value", "1"));
+    }
+
+    @Test
+    void test_matcherAndHelperSeeSameVersion_ok() {
+        wm.stubFor(
+            get(urlPathMatching("/snapshot/[^/]+"))
+                .andMatching("state-matcher", Parameters.from(Map.of(
+                    "hasContext", "{{request.pathSegments.[1]}}",
+                    "property", Map.of("value", Map.of("equalTo", "1"))
+                )))
+                .willReturn(
+                    WireMock.ok()
+                        .withHeader("content-type", "application/json")
+                        .withBody("{" +
+                            "\"before\": \"{{state context=request.pathSegments.[1] property='value'}}\"," +
+                            "\"write\": \"{{writeConcurrently request.pathSegments.[1]}}\"," +
+                            "\"after\": \"{{state context=request.pathSegments.[1] property='value'}}\"" +
+                            "}")
+                )
+                .withServeEventListener("recordState", Parameters.from(Map.of(
+                    "context", "{{request.pathSegments.[1]}}",
+                    "state", Map.of("value", "own")
+                )))
+                .withServeEventListener("recordState", Parameters.from(Map.of(
+                    "context", "copy",
+                    "state", Map.of("value", "{{state context=request.pathSegments.[1] property='value'}}")
+                )))
+        );
+
+        Map<String, Object> result = given()
+            .accept(ContentType.JSON)
+            .get(assertDoesNotThrow(() -> new URI(wm.getRuntimeInfo().getHttpBaseUrl() + "/snapshot/" + contextName)))
+            .then()
+            .statusCode(HttpStatus.SC_OK)
+            .extract().body().jsonPath().getMap("$");
+
+        assertThat(result)
+            .containsEntry("before", "1")
+            .containsEntry("after", "1");
+        await()
+            .pollInterval(Duration.ofMillis(10))
+            .atMost(Duration.ofSeconds(5))
+            .untilAsserted(() -> {
+                assertThat(contextManager.getContextCopy("copy").map(Context::getProperties))
+                    .hasValueSatisfying(it -> assertThat(it).containsEntry("value", "own"));
+                assertThat(contextManager.getContextCopy(contextName).map(Context::getProperties))
+                    .hasValueSatisfying(it -> assertThat(it).containsEntry("value", "own"));
+            });
+    }
+
+    @Test
+    void test_withContextRead_readsSnapshotOfRequest() {
+        var requestId = UUID.randomUUID().toString();
+        Function<Context, String> value = it -> it.getProperties().get("value");
+
+        assertThat(contextManager.withContextRead(requestId, contextName, value)).hasValue("1");
+        contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), contextName, Map.of("value", "2"));
+
+        assertThat(contextManager.withContextRead(requestId, contextName, value)).hasValue("1");
+        assertThat(contextManager.withContextRead(null, contextName, value)).hasValue("2");
+        assertThat(contextManager.withContextRead(UUID.randomUUID().toString(), contextName, value)).hasValue("2");
+
+        contextManager.createOrUpdateContextState(requestId, contextName, Map.of("value", "3"));
+        assertThat(contextManager.withContextRead(requestId, contextName, value)).hasValue("3");
+        contextManager.deleteContext(requestId, contextName);
+        assertThat(contextManager.withContextRead(requestId, contextName, value)).isEmpty();
+    }
+
+    @Test
+    void test_withContextRead_emptyForMissingContextOrResult() {
+        assertThat(contextManager.withContextRead(null, "unknown", it -> "found")).isEmpty();
+        assertThat(contextManager.withContextRead(null, contextName, it -> it.getProperties().get("unknown"))).isEmpty();
+    }
+
+    @Test
+    void test_contextCopy_unchangedByLaterUpdates() {
+        contextManager.createOrUpdateContextList(UUID.randomUUID().toString(), contextName, list -> list.withAddLast(Map.of("entry", "1")));
+        var copy = contextManager.getContextCopy(contextName).orElseThrow();
+
+        contextManager.createOrUpdateContext(
+            UUID.randomUUID().toString(),
+            contextName,
+            ContextUpdate.create().withProperties(Map.of("value", "2", "other", "new")).withAddLast(Map.of("entry", "2"))
+        );
+        contextManager.createOrUpdateContextList(UUID.randomUUID().toString(), contextName, ContextList::withoutFirst);
+
+        assertThat(copy.getProperties()).isEqualTo(Map.of("value", "1"));
+        assertThat(copy.getList()).containsExactly(Map.of("entry", "1"));
+        assertThat(copy.getUpdateCount()).isEqualTo(2);
+        assertThatThrownBy(() -> copy.getProperties().put("value", "3")).isInstanceOf(UnsupportedOperationException.class);
+        assertThat(contextManager.getContextCopy(contextName)).hasValueSatisfying(it -> {
+            assertThat(it.getProperties()).isEqualTo(Map.of("value", "2", "other", "new"));
+            assertThat(it.getList()).containsExactly(Map.of("entry", "2"));
+        });
+    }
+
+    @Test
+    void test_transactionOfIncompleteRequest_expires() {
+        var time = new AtomicLong();
+        var transactionManager = new TransactionManager(time::get);
+        var manager = new ContextManager(store, transactionManager);
+        var requestId = UUID.randomUUID().toString();
+        assertThat(manager.withContextRead(requestId, contextName, it -> it.getProperties().get("value"))).hasValue("1");
+        manager.createOrUpdateContextState(UUID.randomUUID().toString(), contextName, Map.of("value", "2"));
+
+        time.addAndGet(TransactionManager.MAX_REQUEST_DURATION.minusSeconds(1).toNanos());
+        assertThat(manager.withContextRead(requestId, contextName, it -> it.getProperties().get("value"))).hasValue("1");
+
+        time.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertThat(manager.withContextRead(requestId, contextName, it -> it.getProperties().get("value"))).hasValue("2");
+    }
+
+    /**
+     * Provides a helper changing the context from outside the request while the response is rendered.
+     */
+    private static class ConcurrentWriteHelperProvider implements TemplateHelperProviderExtension {
+
+        @Override
+        public String getName() {
+            return "concurrent-write";
+        }
+
+        @Override
+        public Map<String, Helper<?>> provideTemplateHelpers() {
+            Helper<Object> helper = (context, options) -> {
+                contextManager.createOrUpdateContextState(UUID.randomUUID().toString(), context.toString(), Map.of("value", "2"));
+                assertThat(contextManager.getContextCopy(context.toString()).map(Context::getProperties))
+                    .hasValueSatisfying(it -> assertThat(it).containsEntry("value", "2"));
+                return "";
+            };
+            return Map.of("writeConcurrently", helper);
+        }
+    }
+}
@@ -711,6 +711,42 @@ class DeleteStateEventListenerTest extends AbstractTestBase {
                     assertThat(contextManager.getContextCopy(contextNameThree)).isPresent();
                 }
 
+                @DisplayName("deletes contexts by prefix")
+                @Test
+                void test_deleteContextsByPrefix() {
+                    createGetStub(Map.of("contextsMatching", "knownContextT.*"));
+
+                    getContext("any", HttpStatus.SC_OK, (result) -> assertThat(result).isEmpty());
+
+                    assertThat(contextManager.getContextCopy(contextNameOne)).isPresent();
+                    assertThat(contextManager.getContextCopy(contextNameTwo)).isEmpty();
+                    assertThat(contextManager.getContextCopy(contextNameThree)).isEmpty();
+                }
+
+                @DisplayName("deletes contexts with optional characters")
+                @Test
+                void test_deleteContextsOptionalCharacters() {
+                    createGetStub(Map.of("contextsMatching", "knownContextOnx?e"));
+
+                    getContext("any", HttpStatus.SC_OK, (result) -> assertThat(result).isEmpty());
+
+                    assertThat(contextManager.getContextCopy(contextNameOne)).isEmpty();
+                    assertThat(contextManager.getContextCopy(contextNameTwo)).isPresent();
+                    assertThat(contextManager.getContextCopy(contextNameThree)).isPresent();
+                }
+
+                @DisplayName("deletes contexts with optional characters and alternatives")
+                @Test
+                void test_deleteContextsOptionalAndAlternatives() {
+                    createGetStub(Map.of("contextsMatching", "knownContextx?One|knownContextT(wo)"));
+
+                    getContext("any", HttpStatus.SC_OK, (result) -> assertThat(result).isEmpty());
+
+                    assertThat(contextManager.getContextCopy(contextNameOne)).isEmpty();
+                    assertThat(contextManager.getContextCopy(contextNameTwo)).isEmpty();
+                    assertThat(contextManager.getContextCopy(contextNameThree)).isPresent();
+                }
+
                 @DisplayName("does not delete other contexts")
                 @Test
                 void test_doesNotDeleteOther() {
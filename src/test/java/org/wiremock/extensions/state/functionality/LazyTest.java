@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.functionality;
+
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.internal.Lazy;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LazyTest {
+
+    @Test
+    void test_notAccessed_notComputed() {
+        var calls = new AtomicInteger();
+
+        Lazy.of(calls::incrementAndGet);
+
+        assertThat(calls).hasValue(0);
+    }
+
+    @Test
+    void test_accessedRepeatedly_computedOnce() {
+        var calls = new AtomicInteger();
+        var lazy = Lazy.of(calls::incrementAndGet);
+
+        assertThat(lazy.get()).isEqualTo(1);
+        assertThat(lazy.get()).isEqualTo(1);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void test_nullValue_computedOnce() {
+        var calls = new AtomicInteger();
+        var lazy = Lazy.of(() -> {
+            calls.incrementAndGet();
+            return null;
+        });
+
+        assertThat(lazy.get()).isNull();
+        assertThat(lazy.get()).isNull();
+        assertThat(calls).hasValue(1);
+    }
+}
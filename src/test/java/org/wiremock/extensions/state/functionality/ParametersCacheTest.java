@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.functionality;
+
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.internal.ParametersCache;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParametersCacheTest {
+
+    private final AtomicInteger created = new AtomicInteger();
+    private final ParametersCache<String> cache = new ParametersCache<>(it -> {
+        created.incrementAndGet();
+        return it.getString("value");
+    });
+
+    @Test
+    void test_sameParameters_createdOnce() {
+        var parameters = Parameters.from(Map.of("value", "one"));
+
+        assertThat(cache.get(parameters)).isEqualTo("one");
+        assertThat(cache.get(parameters)).isEqualTo("one");
+        assertThat(created).hasValue(1);
+    }
+
+    @Test
+    void test_equalParametersOfOtherStub_createdSeparately() {
+        var first = Parameters.from(Map.of("value", "one"));
+        var second = Parameters.from(Map.of("value", "one"));
+        var changed = Parameters.from(Map.of("value", "two"));
+
+        assertThat(cache.get(first)).isEqualTo("one");
+        assertThat(cache.get(second)).isEqualTo("one");
+        assertThat(cache.get(changed)).isEqualTo("two");
+        assertThat(created).hasValue(3);
+    }
+}
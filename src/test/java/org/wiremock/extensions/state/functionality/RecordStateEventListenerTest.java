@@ -25,8 +25,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.internal.model.Expiration;
 
 import java.net.URI;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -42,6 +44,7 @@ class RecordStateEventListenerTest extends AbstractTestBase {
         createStatePostStub();
         createListPostStub();
         createStateAndListPostStub();
+        createExpiringStatePostStub();
     }
 
     private void postRequest(String path, String contextValueOne, String contextValueTwo) {
@@ -123,6 +126,71 @@ class RecordStateEventListenerTest extends AbstractTestBase {
         );
     }
 
+    private void createExpiringStatePostStub() {
+        wm.stubFor(
+            WireMock.post(urlPathMatching("/expiring/[^/]+"))
+                .willReturn(
+                    WireMock.ok()
+                        .withHeader("content-type", "application/json")
+                        .withBody("{}")
+                )
+                .withServeEventListener(
+                    "recordState",
+                    Parameters.from(
+                        Map.of(
+                            "context", "{{request.pathSegments.[1]}}",
+                            "expireAfter", "{{jsonPath request.body '$.contextValueTwo'}}",
+                            "state", Map.of(
+                                "stateValueOne", "{{jsonPath request.body '$.contextValueOne'}}"
+                            )
+                        )
+                    )
+                )
+        );
+        wm.stubFor(
+            WireMock.post(urlPathMatching("/expiringList/[^/]+"))
+                .willReturn(
+                    WireMock.ok()
+                        .withHeader("content-type", "application/json")
+                        .withBody("{}")
+                )
+                .withServeEventListener(
+                    "recordState",
+                    Parameters.from(
+                        Map.of(
+                            "context", "{{request.pathSegments.[1]}}",
+                            "list", Map.of(
+                                "expireAfter", "{{jsonPath request.body '$.contextValueTwo'}}",
+                                "addLast", Map.of(
+                                    "stateValueOne", "{{jsonPath request.body '$.contextValueOne'}}"
+                                )
+                            )
+                        )
+                    )
+                )
+        );
+        wm.stubFor(
+            WireMock.post(urlPathMatching("/idleExpiring/[^/]+"))
+                .willReturn(
+                    WireMock.ok()
+                        .withHeader("content-type", "application/json")
+                        .withBody("{}")
+                )
+                .withServeEventListener(
+                    "recordState",
+                    Parameters.from(
+                        Map.of(
+                            "context", "{{request.pathSegments.[1]}}",
+                            "expireAfterAccess", "{{jsonPath request.body '$.contextValueTwo'}}",
+                            "state", Map.of(
+                                "stateValueOne", "{{jsonPath request.body '$.contextValueOne'}}"
+                            )
+                        )
+                    )
+                )
+        );
+    }
+
     private void createStateAndListPostStub() {
         wm.stubFor(
             WireMock.post(urlPathMatching("/stateAndList/[^/]+"))
@@ -254,6 +322,51 @@ class RecordStateEventListenerTest extends AbstractTestBase {
             assertContext(contextNameTwo, contextNameTwo, "two", "two", "noPrevious");
         }
 
+        @Test
+        public void test_templatedAndLiteralValuesOfSameStub_renderedPerRequest() {
+            var literalContextName = RandomStringUtils.randomAlphabetic(5);
+            wm.stubFor(
+                WireMock.post(urlPathMatching("/mixed/[^/]+"))
+                    .willReturn(WireMock.ok())
+                    .withServeEventListener(
+                        "recordState",
+                        Parameters.from(
+                            Map.of(
+                                "context", "{{request.pathSegments.[1]}}",
+                                "state", Map.of(
+                                    "literal", "fixed",
+                                    "templated", "{{jsonPath request.body '$.contextValueTwo'}}"
+                                )
+                            )
+                        )
+                    )
+                    .withServeEventListener(
+                        "recordState",
+                        Parameters.from(
+                            Map.of(
+                                "context", literalContextName,
+                                "state", Map.of("last", "{{request.pathSegments.[1]}}")
+                            )
+                        )
+                    )
+            );
+            var contextNameOne = RandomStringUtils.randomAlphabetic(5);
+            var contextNameTwo = RandomStringUtils.randomAlphabetic(5);
+
+            postRequest("mixed", contextNameOne, "one");
+            assertThat(contextManager.getContextCopy(literalContextName))
+                .hasValueSatisfying(it -> assertThat(it.getProperties()).containsEntry("last", contextNameOne));
+            postRequest("mixed", contextNameTwo, "two");
+
+            assertThat(contextManager.getContextCopy(contextNameOne))
+                .hasValueSatisfying(it -> assertThat(it.getProperties()).isEqualTo(Map.of("literal", "fixed", "templated", "one")));
+            assertThat(contextManager.getContextCopy(contextNameTwo))
+                .hasValueSatisfying(it -> assertThat(it.getProperties()).isEqualTo(Map.of("literal", "fixed", "templated", "two")));
+            assertThat(contextManager.getContextCopy(literalContextName))
+                .hasValueSatisfying(it -> assertThat(it.getProperties()).containsEntry("last", contextNameTwo));
+            assertThat(contextManager.numUpdates(literalContextName)).isEqualTo(2);
+        }
+
         private void assertContext(String contextNameTwo, String stateValueOne, String stateValueTwoWithoutDefault, String stateValueTwoWithDefault, String statePrevious) {
             assertThat(contextManager.getContextCopy(contextNameTwo))
                 .isPresent()
@@ -301,6 +414,51 @@ class RecordStateEventListenerTest extends AbstractTestBase {
             assertContext("first-" + contextName, 2, 1, contextName, "one");
         }
 
+        @Test
+        public void test_templatedAndLiteralValuesOfSameStub_renderedPerRequest() {
+            var literalContextName = RandomStringUtils.randomAlphabetic(5);
+            wm.stubFor(
+                WireMock.post(urlPathMatching("/mixed/[^/]+"))
+                    .willReturn(WireMock.ok())
+                    .withServeEventListener(
+                        "recordState",
+                        Parameters.from(
+                            Map.of(
+                                "context", "{{request.pathSegments.[1]}}",
+                                "state", Map.of(
+                                    "literal", "fixed",
+                                    "templated", "{{jsonPath request.body '$.contextValueTwo'}}"
+                                )
+                            )
+                        )
+                    )
+                    .withServeEventListener(
+                        "recordState",
+                        Parameters.from(
+                            Map.of(
+                                "context", literalContextName,
+                                "state", Map.of("last", "{{request.pathSegments.[1]}}")
+                            )
+                        )
+                    )
+            );
+            var contextNameOne = RandomStringUtils.randomAlphabetic(5);
+            var contextNameTwo = RandomStringUtils.randomAlphabetic(5);
+
+            postRequest("mixed", contextNameOne, "one");
+            assertThat(contextManager.getContextCopy(literalContextName))
+                .hasValueSatisfying(it -> assertThat(it.getProperties()).containsEntry("last", contextNameOne));
+            postRequest("mixed", contextNameTwo, "two");
+
+            assertThat(contextManager.getContextCopy(contextNameOne))
+                .hasValueSatisfying(it -> assertThat(it.getProperties()).isEqualTo(Map.of("literal", "fixed", "templated", "one")));
+            assertThat(contextManager.getContextCopy(contextNameTwo))
+                .hasValueSatisfying(it -> assertThat(it.getProperties()).isEqualTo(Map.of("literal", "fixed", "templated", "two")));
+            assertThat(contextManager.getContextCopy(literalContextName))
+                .hasValueSatisfying(it -> assertThat(it.getProperties()).containsEntry("last", contextNameTwo));
+            assertThat(contextManager.numUpdates(literalContextName)).isEqualTo(2);
+        }
+
         private void assertContext(String contextNameTwo, Integer size, Integer index, String stateValueOne, String stateValueTwo) {
             assertThat(contextManager.getContextCopy(contextNameTwo))
                 .isPresent()
@@ -379,4 +537,86 @@ class RecordStateEventListenerTest extends AbstractTestBase {
             assertContextNumUpdates(context, 1);
         }
     }
-}
\ No newline at end of file
+
+    @Nested
+    public class Expiry {
+
+        @Test
+        void test_contextExpiresAfterConfiguredTime_ok() {
+            var expiringContext = RandomStringUtils.randomAlphabetic(5);
+            var otherContext = RandomStringUtils.randomAlphabetic(5);
+
+            postRequest("expiring", expiringContext, "PT0.2S");
+            postRequest("state", otherContext, "one");
+
+            clock.advance(Duration.ofMillis(199));
+            assertThat(contextManager.getContextCopy(expiringContext)).isPresent();
+            clock.advance(Duration.ofMillis(1));
+            assertThat(contextManager.getContextCopy(expiringContext)).isEmpty();
+            assertThat(contextManager.getContextCopy(otherContext)).isPresent();
+        }
+
+        @Test
+        void test_expirationInSeconds_ok() {
+            var context = RandomStringUtils.randomAlphabetic(5);
+
+            postRequest("expiring", context, "60");
+
+            assertThat(contextManager.getContextCopy(context))
+                .hasValueSatisfying(it -> assertThat(it.getExpiration()).contains(Expiration.afterWrite(Duration.ofSeconds(60))));
+        }
+
+        @Test
+        void test_readsExtendExpirationAfterAccess_ok() {
+            var context = RandomStringUtils.randomAlphabetic(5);
+
+            postRequest("idleExpiring", context, "PT0.5S");
+            for (int i = 0; i < 10; i++) {
+                clock.advance(Duration.ofMillis(400));
+                assertThat(contextManager.getContextCopy(context)).isPresent();
+            }
+
+            clock.advance(Duration.ofMillis(500));
+            assertThat(contextManager.getContextCopy(context)).isEmpty();
+        }
+
+        @Test
+        void test_listEntriesExpire_ok() {
+            var context = RandomStringUtils.randomAlphabetic(5);
+
+            postRequest("expiringList", context, "PT0.3S");
+            postRequest("expiringList", context, "60");
+
+            clock.advance(Duration.ofMillis(299));
+            assertThat(contextManager.getContextCopy(context))
+                .hasValueSatisfying(it -> assertThat(it.getList()).hasSize(2));
+            clock.advance(Duration.ofMillis(1));
+            assertThat(contextManager.getContextCopy(context))
+                .hasValueSatisfying(it -> assertThat(it.getList()).hasSize(1));
+        }
+
+        @Test
+        void test_listEntryInTheMiddleExpires_ok() {
+            var context = RandomStringUtils.randomAlphabetic(5);
+
+            postRequest("expiringList", context, "60");
+            postRequest("expiringList", context, "PT0.3S");
+            postRequest("expiringList", context, "60");
+
+            clock.advance(Duration.ofMillis(300));
+            assertThat(contextManager.getContextCopy(context))
+                .hasValueSatisfying(it -> assertThat(it.getList()).hasSize(2));
+        }
+
+        @Test
+        void test_listEntryExpirationBeyondClock_neverExpires() {
+            var context = RandomStringUtils.randomAlphabetic(5);
+
+            postRequest("expiringList", context, "10000000000");
+
+            clock.advance(Duration.ofMinutes(59));
+            assertThat(contextManager.getContextCopy(context))
+                .hasValueSatisfying(it -> assertThat(it.getList()).hasSize(1));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.functionality;
+
+import com.github.tomakehurst.wiremock.common.DataTruncationSettings;
+import com.github.tomakehurst.wiremock.http.HttpHeader;
+import com.github.tomakehurst.wiremock.http.HttpHeaders;
+import com.github.tomakehurst.wiremock.http.ImmutableRequest;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.http.Response;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.internal.model.ResponseTemplateModel;
+import org.wiremock.extensions.state.internal.model.ServeEventScope;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ServeEventScopeTest {
+
+    private final AtomicInteger builtModels = new AtomicInteger();
+
+    private static ServeEvent serveEvent() {
+        return ServeEvent.of(new ImmutableRequest.Builder().withAbsoluteUrl("http://localhost/x").withMethod(RequestMethod.GET).build());
+    }
+
+    private ServeEventScope scope(ServeEvent serveEvent) {
+        return new ServeEventScope(serveEvent, it -> {
+            builtModels.incrementAndGet();
+            return new HashMap<>(Map.of("request", it.getRequest().getUrl()));
+        });
+    }
+
+    @Test
+    void test_model_builtOnFirstAccessOnly() {
+        var scope = scope(serveEvent());
+        var model = scope.getModel();
+
+        assertThat(builtModels).hasValue(0);
+        assertThat(model.get()).containsEntry("request", "/x").containsKey("response");
+        assertThat(scope.getModel().get()).isSameAs(model.get());
+        assertThat(builtModels).hasValue(1);
+    }
+
+    @Test
+    void test_missingResponse_notAccessed() {
+        var scope = scope(serveEvent());
+
+        assertThat(scope.getModel().get()).containsKey("response");
+    }
+
+    @Test
+    void test_response_readOnAccess() {
+        var serveEvent = serveEvent().complete(
+            Response.response().status(200).headers(new HttpHeaders(new HttpHeader("x-id", "1"))).body("aBody").build(),
+            DataTruncationSettings.NO_TRUNCATION
+        );
+
+        var response = (ResponseTemplateModel) scope(serveEvent).getModel().get().get("response");
+
+        assertThat(response.getBody()).isEqualTo("aBody");
+        assertThat(response.getHeaders()).containsKey("x-id");
+    }
+
+    @Test
+    void test_contextName_renderedOncePerServeEvent() {
+        var renderings = new AtomicInteger();
+        Function<String, String> renderer = it -> it + "-" + renderings.incrementAndGet();
+        var scope = scope(serveEvent());
+
+        assertThat(scope.getContextName("{{first}}", renderer)).isEqualTo("{{first}}-1");
+        assertThat(scope.getContextName("{{first}}", renderer)).isEqualTo("{{first}}-1");
+        assertThat(scope.getContextName("{{second}}", renderer)).isEqualTo("{{second}}-2");
+        assertThat(scope(serveEvent()).getContextName("{{first}}", renderer)).isEqualTo("{{first}}-3");
+        assertThat(renderings).hasValue(3);
+    }
+}
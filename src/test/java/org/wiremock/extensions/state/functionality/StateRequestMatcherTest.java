@@ -256,6 +256,16 @@ class StateRequestMatcherTest extends AbstractTestBase {
             getAndAssertContextMatcher(context, HttpStatus.SC_OK);
         }
 
+        @DisplayName("uses a literal context name regardless of the request")
+        @Test
+        void test_literalContextAndMatchers_ok() {
+            var context = postAndAssertContextValue(contextValue);
+            createGetStub(Map.of("hasContext", context, "property", Map.of("stateValue", Map.of("equalTo", contextValue))));
+
+            getAndAssertContextMatcher(context, HttpStatus.SC_OK);
+            getAndAssertContextMatcher("otherContext", HttpStatus.SC_OK);
+        }
+
         @DisplayName("with other contexts available")
         @Nested
         public class WithOtherContexts {
@@ -400,6 +410,20 @@ class StateRequestMatcherTest extends AbstractTestBase {
                 );
                 getAndAssertContextMatcher(context, HttpStatus.SC_OK);
             }
+
+            @DisplayName("renders templated matchers per request next to literal ones")
+            @Test
+            void test_templatedAndLiteralMatchers_evaluatedPerRequest() {
+                createGetStub(Map.of(
+                    "hasContext", "{{request.pathSegments.[2]}}",
+                    "hasProperty", "stateValue",
+                    "property", Map.of("stateValue", Map.of("equalTo", "{{request.query.expected}}"))
+                ));
+
+                getAndAssertContextMatcher(context + "?expected=" + contextValue, HttpStatus.SC_OK);
+                getAndAssertContextMatcher(context + "?expected=other", HttpStatus.SC_NOT_FOUND);
+                getAndAssertContextMatcher(context + "?expected=" + contextValue, HttpStatus.SC_OK);
+            }
         }
 
         @DisplayName("with matcher 'list'")
@@ -620,6 +644,49 @@ class StateRequestMatcherTest extends AbstractTestBase {
                     getAndAssertContextMatcher(context, HttpStatus.SC_NOT_FOUND);
                 }
             }
+
+            @DisplayName("combined with other matchers")
+            @Nested
+            public class WithOtherMatchers {
+
+                @DisplayName("succeeds if all matchers match")
+                @Test
+                void test_allMatch_ok() {
+                    createGetStub(Map.of(
+                        "hasContext", "{{request.pathSegments.[2]}}",
+                        "property", Map.of("stateValue", Map.of("matches", "[a-zA-Z]{5}")),
+                        "list", Map.of("last", Map.of("stateValue", Map.of("matches", "[a-zA-Z]{5}"))),
+                        "hasProperty", "stateValue",
+                        "updateCountEqualTo", "2"
+                    ));
+
+                    getAndAssertContextMatcher(context, HttpStatus.SC_OK);
+                }
+
+                @DisplayName("fails on non-matching property with matching count")
+                @Test
+                void test_propertyDoesNotMatch_fail() {
+                    createGetStub(Map.of(
+                        "hasContext", "{{request.pathSegments.[2]}}",
+                        "property", Map.of("stateValue", Map.of("equalTo", "other")),
+                        "updateCountEqualTo", "2"
+                    ));
+
+                    getAndAssertContextMatcher(context, HttpStatus.SC_NOT_FOUND);
+                }
+
+                @DisplayName("fails on non-matching count with matching property")
+                @Test
+                void test_countDoesNotMatch_fail() {
+                    createGetStub(Map.of(
+                        "hasContext", "{{request.pathSegments.[2]}}",
+                        "property", Map.of("stateValue", Map.of("matches", "[a-zA-Z]{5}")),
+                        "updateCountEqualTo", "1"
+                    ));
+
+                    getAndAssertContextMatcher(context, HttpStatus.SC_NOT_FOUND);
+                }
+            }
         }
 
         @DisplayName("with listSize matchers")
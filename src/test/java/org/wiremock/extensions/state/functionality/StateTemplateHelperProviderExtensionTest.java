@@ -801,5 +801,51 @@ class StateTemplateHelperProviderExtensionTest extends AbstractTestBase {
                 getContextList(contextName, (result) -> assertThat(result).containsExactly(requestOne, requestTwo, requestThree));
             }
         }
+
+        @DisplayName("when filtering by indexed property")
+        @Nested
+        public class IndexedList {
+
+            @BeforeEach
+            void setup() {
+                createBasicContextPostStub(Map.of(
+                    "list", Map.of(
+                        "addLast", Map.of(
+                            "id", "{{jsonPath request.body '$.id'}}",
+                            "listValue", "{{jsonPath request.body '$.listValue'}}"
+                        ),
+                        "indexBy", List.of("id")
+                    )
+                ));
+                postContext(contextName, Map.of("id", "1", "listValue", "a"));
+                postContext(contextName, Map.of("id", "2", "listValue", "b"));
+                postContext(contextName, Map.of("id", "3", "listValue", "c"));
+                postContext(contextName, Map.of("id", "2", "listValue", "d"));
+            }
+
+            @DisplayName("returns all matching elements in order")
+            @Test
+            void test_returnsMatchingElements() {
+                createContextGetStub("{\"listValue\": \"{{#each (state context=request.pathSegments.[1] list=\"$.[?(@.id == '2')]\")}}{{this.listValue}}{{/each}}\"}");
+
+                getContext(contextName, (result) -> assertThat(result).containsEntry("listValue", "bd"));
+            }
+
+            @DisplayName("applies path to matching elements")
+            @Test
+            void test_appliesPathToMatchingElements() {
+                createContextGetStub("{\"listValue\": \"{{#each (state context=request.pathSegments.[1] list=\"$[?(@.id == '2')].listValue\")}}{{this}}{{/each}}\"}");
+
+                getContext(contextName, (result) -> assertThat(result).containsEntry("listValue", "bd"));
+            }
+
+            @DisplayName("returns no elements for unknown value")
+            @Test
+            void test_unknownValue() {
+                createContextGetStub("{\"listValue\": \"{{#each (state context=request.pathSegments.[1] list=\"$[?(@.id == '4')]\")}}{{this.listValue}}{{/each}}\"}");
+
+                getContext(contextName, (result) -> assertThat(result).containsEntry("listValue", ""));
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2023 Dirk Bolte
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wiremock.extensions.state.functionality;
+
+import com.github.tomakehurst.wiremock.extension.WireMockServices;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.TemplateEngine;
+import org.junit.jupiter.api.Test;
+import org.wiremock.extensions.state.internal.TemplateRenderer;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TemplateRendererTest {
+
+    private final AtomicInteger compiledTemplates = new AtomicInteger();
+    private final TemplateRenderer renderer = new TemplateRenderer(wireMockServices());
+
+    private WireMockServices wireMockServices() {
+        var templateEngine = TemplateEngine.defaultTemplateEngine();
+        return (WireMockServices) Proxy.newProxyInstance(
+            WireMockServices.class.getClassLoader(),
+            new Class<?>[]{WireMockServices.class},
+            (proxy, method, args) -> {
+                if (method.getName().equals("getTemplateEngine")) {
+                    compiledTemplates.incrementAndGet();
+                    return templateEngine;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            }
+        );
+    }
+
+    @Test
+    void test_literal_returnedWithoutModel() {
+        var literalRenderer = new TemplateRenderer(null);
+
+        assertThat(literalRenderer.render(() -> {
+            throw new AssertionError("model must not be requested");
+        }, "plain value")).isEqualTo("plain value");
+        assertThat(literalRenderer.render(() -> {
+            throw new AssertionError("model must not be requested");
+        }, "{single}")).isEqualTo("{single}");
+        assertThat(TemplateRenderer.isLiteral("{single}")).isTrue();
+        assertThat(TemplateRenderer.isLiteral("{{single}}")).isFalse();
+    }
+
+    @Test
+    void test_sameTemplateDifferentModels_renderedPerModel() {
+        var template = "value: {{value}}";
+
+        assertThat(renderer.render(Map.of("value", "1"), template)).isEqualTo("value: 1");
+        assertThat(renderer.render(Map.of("value", "2"), template)).isEqualTo("value: 2");
+        assertThat(renderer.render(() -> Map.of("value", "3"), template)).isEqualTo("value: 3");
+        assertThat(compiledTemplates).hasValue(1);
+    }
+
+    @Test
+    void test_differentTemplates_compiledSeparately() {
+        assertThat(renderer.render(Map.of("value", "1"), "a{{value}}")).isEqualTo("a1");
+        assertThat(renderer.render(Map.of("value", "1"), "b{{value}}")).isEqualTo("b1");
+        assertThat(renderer.render(Map.of("value", "1"), "literal")).isEqualTo("literal");
+        assertThat(compiledTemplates).hasValue(2);
+    }
+}